@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip6Address;
+import org.onlab.packet.MacAddress;
+import org.onosproject.ipfix.packet.DataRecord;
+import org.onosproject.ipfix.packet.HeaderException;
+import org.onosproject.ipfix.packet.MessageEncoder;
+import org.onosproject.ipfix.packet.MessageHeader;
+import org.onosproject.ipfix.packet.SetHeader;
+import org.onosproject.ipfix.packet.TemplateRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks encoding of an IPFIX message carrying a template set and a
+ * data set of reactive forwarding IPv4 records: through byte arrays, by
+ * writing the message tree into a buffer, and with the streaming encoder.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IpfixMessageBenchmark {
+
+    private static final int IPFIX_VERSION = 10;
+    private static final int TEMPLATE_SETID = 2;
+    private static final int MAX_MESSAGE_LENGTH = 0xffff;
+
+    @Param({"1", "10", "30"})
+    private int recordCount;
+
+    private MessageHeader message;
+    private TemplateRecord template;
+    private List<DataRecord> records;
+    private long exportTime;
+    private ByteBuffer buffer;
+    private MessageEncoder encoder;
+
+    @Setup
+    public void setUp() {
+        template = DataRecordRfwdIpv4.getTemplateRecord();
+
+        SetHeader templateSet = new SetHeader();
+        templateSet.setSetID(TEMPLATE_SETID);
+        templateSet.getTemplateRecords().add(template);
+        templateSet.setTemplateRecords(templateSet.getTemplateRecords());
+
+        SetHeader dataSet = new SetHeader();
+        dataSet.setSetID(template.getTemplateID());
+        records = dataSet.getDataRecords();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < recordCount; i++) {
+            records.add(new DataRecordRfwdIpv4(
+                    Ip4Address.valueOf("10.0.0.1"), Ip6Address.valueOf("::1"),
+                    now - 1000, now, 1500L * i, i, 1, 2,
+                    MacAddress.valueOf(i + 1), MacAddress.valueOf(i + 2),
+                    (short) 0x0800, (short) 0,
+                    Ip4Address.valueOf(0x0a000100 + i), Ip4Address.valueOf(0x0a000200 + i),
+                    (byte) 6, (byte) 0, (short) (40000 + i), (short) 80));
+        }
+        dataSet.setDataRecords(records);
+
+        message = new MessageHeader();
+        message.setVersionNumber(IPFIX_VERSION);
+        message.setObservationDomainID(1);
+        message.setSequenceNumber(1);
+        message.setExportTime(new Date(now));
+        message.getSetHeaders().add(templateSet);
+        message.getSetHeaders().add(dataSet);
+        message.setSetHeaders(message.getSetHeaders());
+
+        buffer = ByteBuffer.allocate(MAX_MESSAGE_LENGTH);
+        encoder = new MessageEncoder(MAX_MESSAGE_LENGTH, false);
+        exportTime = now;
+    }
+
+    @Benchmark
+    public byte[] messageGetBytes() throws HeaderException {
+        return message.getBytes();
+    }
+
+    @Benchmark
+    public ByteBuffer messageWrite() throws HeaderException {
+        buffer.clear();
+        message.write(buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer encoder() throws HeaderException {
+        encoder.startMessage(exportTime, 1, 1)
+                .startSet(TEMPLATE_SETID)
+                .write(template)
+                .startSet(template.getTemplateID());
+        for (DataRecord record : records) {
+            encoder.write(record);
+        }
+        return encoder.finishMessage();
+    }
+}
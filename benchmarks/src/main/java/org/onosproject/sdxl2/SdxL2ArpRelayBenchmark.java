@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.sdxl2;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.onlab.packet.ARP;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.MacAddress;
+import org.onosproject.TestApplicationId;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.core.IdGenerator;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.intent.Intent;
+import org.onosproject.net.intent.IntentServiceAdapter;
+import org.onosproject.net.intent.IntentState;
+import org.onosproject.net.intent.Key;
+import org.onosproject.net.intent.PointToPointIntent;
+import org.onosproject.net.packet.DefaultInboundPacket;
+import org.onosproject.net.packet.DefaultPacketContext;
+import org.onosproject.net.packet.PacketContext;
+import org.onosproject.net.packet.PacketServiceAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Benchmarks relaying an ARP request over the SDX-L2 virtual circuits.
+ * <p>
+ * The relay scans all intents for the one matching the packet, so the
+ * matching intent is placed last to measure the full scan.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SdxL2ArpRelayBenchmark {
+
+    private static final ApplicationId APP_ID = new TestApplicationId("org.onosproject.sdxl2");
+    private static final DeviceId DEVICE_ID = DeviceId.deviceId("of:0000000000000001");
+
+    @Param({"10", "100", "1000"})
+    private int intentCount;
+
+    private final IdGenerator idGenerator = new AtomicLong()::getAndIncrement;
+
+    private SdxL2ArpNdpHandler handler;
+    private PacketContext context;
+
+    @Setup
+    public void setUp() {
+        Intent.bindIdGenerator(idGenerator);
+        SdxL2ArpNdpHandler.setVcType(VirtualCircuitMechanism.MAC);
+
+        List<Intent> intents = Lists.newArrayList();
+        for (int i = 1; i <= intentCount; i++) {
+            intents.add(PointToPointIntent.builder()
+                                .appId(APP_ID)
+                                .key(Key.of(i, APP_ID))
+                                .selector(DefaultTrafficSelector.builder()
+                                                  .matchEthSrc(MacAddress.valueOf(i))
+                                                  .matchEthDst(MacAddress.valueOf(i + 1))
+                                                  .build())
+                                .treatment(DefaultTrafficTreatment.emptyTreatment())
+                                .ingressPoint(new ConnectPoint(DEVICE_ID, PortNumber.portNumber(i)))
+                                .egressPoint(new ConnectPoint(DEVICE_ID, PortNumber.portNumber(i + 1)))
+                                .build());
+        }
+        handler = new SdxL2ArpNdpHandler(new TestIntentService(intents),
+                                         new PacketServiceAdapter(), APP_ID);
+
+        // Untagged, so that relaying leaves the packet unchanged across invocations
+        ARP arp = new ARP();
+        arp.setHardwareType(ARP.HW_TYPE_ETHERNET)
+                .setProtocolType(ARP.PROTO_TYPE_IP)
+                .setHardwareAddressLength((byte) Ethernet.DATALAYER_ADDRESS_LENGTH)
+                .setProtocolAddressLength((byte) Ip4Address.BYTE_LENGTH)
+                .setOpCode(ARP.OP_REQUEST)
+                .setSenderHardwareAddress(MacAddress.valueOf(intentCount).toBytes())
+                .setSenderProtocolAddress(Ip4Address.valueOf("10.0.0.1").toOctets())
+                .setTargetHardwareAddress(MacAddress.ZERO.toBytes())
+                .setTargetProtocolAddress(Ip4Address.valueOf("10.0.0.2").toOctets());
+        Ethernet eth = new Ethernet();
+        eth.setEtherType(Ethernet.TYPE_ARP)
+                .setSourceMACAddress(MacAddress.valueOf(intentCount))
+                .setDestinationMACAddress(MacAddress.BROADCAST)
+                .setPayload(arp);
+
+        ConnectPoint inPort = new ConnectPoint(DEVICE_ID, PortNumber.portNumber(intentCount));
+        context = new DefaultPacketContext(0, new DefaultInboundPacket(inPort, eth, ByteBuffer.wrap(eth.serialize())),
+                                           null, false) {
+            @Override
+            public void send() {
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        Intent.unbindIdGenerator(idGenerator);
+    }
+
+    @Benchmark
+    public boolean relayArpRequest() {
+        return handler.handlePacket(context);
+    }
+
+    // Intent service holding a fixed list of installed intents
+    private static final class TestIntentService extends IntentServiceAdapter {
+        private final List<Intent> intents;
+
+        private TestIntentService(List<Intent> intents) {
+            this.intents = intents;
+        }
+
+        @Override
+        public Iterable<Intent> getIntents() {
+            return intents;
+        }
+
+        @Override
+        public IntentState getIntentState(Key intentKey) {
+            return IntentState.INSTALLED;
+        }
+    }
+}
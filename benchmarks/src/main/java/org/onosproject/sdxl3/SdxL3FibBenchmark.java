@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.sdxl3;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onosproject.TestApplicationId;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.core.CoreServiceAdapter;
+import org.onosproject.core.IdGenerator;
+import org.onosproject.incubator.net.intf.Interface;
+import org.onosproject.incubator.net.intf.InterfaceServiceAdapter;
+import org.onosproject.incubator.net.routing.RouteServiceAdapter;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.host.InterfaceIpAddress;
+import org.onosproject.net.intent.Intent;
+import org.onosproject.net.intent.MultiPointToSinglePointIntent;
+import org.onosproject.routing.config.BgpConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Benchmarks generating the route intent of a prefix learnt from one of the
+ * peers of an IXP with a given number of peering interfaces.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SdxL3FibBenchmark {
+
+    private static final ApplicationId APP_ID = new TestApplicationId(SdxL3.SDX_L3_APP);
+    private static final DeviceId DEVICE_ID = DeviceId.deviceId("of:0000000000000001");
+    private static final IpPrefix PREFIX = IpPrefix.valueOf("1.1.1.0/24");
+    private static final IpAddress NEXT_HOP = Ip4Address.valueOf("192.168.10.1");
+    private static final MacAddress NEXT_HOP_MAC = MacAddress.valueOf("00:00:00:00:00:01");
+
+    @Param({"10", "100", "500"})
+    private int interfaceCount;
+
+    private final IdGenerator idGenerator = new AtomicLong()::getAndIncrement;
+
+    private SdxL3Fib fib;
+
+    @Setup
+    public void setUp() {
+        Intent.bindIdGenerator(idGenerator);
+
+        ImmutableSet.Builder<Interface> interfaces = ImmutableSet.builder();
+        for (int i = 1; i <= interfaceCount; i++) {
+            InterfaceIpAddress address = new InterfaceIpAddress(
+                    Ip4Address.valueOf(0xc0a80a00 + i), IpPrefix.valueOf("192.168.10.0/24"));
+            interfaces.add(new Interface("peer" + i,
+                                         new ConnectPoint(DEVICE_ID, PortNumber.portNumber(i)),
+                                         ImmutableList.of(address), MacAddress.valueOf(i),
+                                         VlanId.NONE));
+        }
+        Set<Interface> allInterfaces = interfaces.build();
+        Interface egress = allInterfaces.iterator().next();
+
+        fib = new SdxL3Fib();
+        fib.coreService = new CoreServiceAdapter() {
+            @Override
+            public ApplicationId getAppId(String name) {
+                return APP_ID;
+            }
+        };
+        fib.interfaceService = new InterfaceServiceAdapter() {
+            @Override
+            public Set<Interface> getInterfaces() {
+                return allInterfaces;
+            }
+        };
+        fib.routeService = new RouteServiceAdapter();
+        fib.peerService = new TestPeerService(egress);
+        fib.activate();
+    }
+
+    @TearDown
+    public void tearDown() {
+        fib.deactivate();
+        Intent.unbindIdGenerator(idGenerator);
+    }
+
+    @Benchmark
+    public MultiPointToSinglePointIntent generateRouteIntent() {
+        return fib.generateRouteIntent(PREFIX, NEXT_HOP, NEXT_HOP_MAC);
+    }
+
+    // Peer service resolving every peer to the same interface
+    private static final class TestPeerService implements SdxL3PeerService {
+        private final Interface egress;
+
+        private TestPeerService(Interface egress) {
+            this.egress = egress;
+        }
+
+        @Override
+        public List<IpAddress> getPeerAddresses(BgpConfig bgpConfig) {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public Interface getInterfaceForPeer(IpAddress peerAddress) {
+            return egress;
+        }
+
+        @Override
+        public void addPeerDetails(String peerName, IpAddress peerAddress,
+                                   ConnectPoint port, String interfaceName) {
+        }
+
+        @Override
+        public void removePeerDetails(IpAddress peerAddress) {
+        }
+    }
+}
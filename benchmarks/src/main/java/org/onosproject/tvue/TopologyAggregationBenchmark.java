@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.tvue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.onlab.osgi.TestServiceDirectory;
+import org.onlab.rest.BaseResource;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DefaultLink;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.link.LinkService;
+import org.onosproject.net.link.LinkServiceAdapter;
+import org.onosproject.net.provider.ProviderId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Benchmarks aggregating the links of a topology into per device pair
+ * edges, as done for every topology view request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TopologyAggregationBenchmark {
+
+    private static final ProviderId PROVIDER_ID = new ProviderId("of", "org.onosproject.tvue");
+
+    // Parallel links between each pair of adjacent devices, in both directions
+    private static final int PARALLEL_LINKS = 2;
+
+    @Param({"10", "100", "1000"})
+    private int deviceCount;
+
+    private TopologyResource resource;
+
+    @Setup
+    public void setUp() {
+        // Ring of devices
+        List<Link> links = Lists.newArrayList();
+        for (int i = 0; i < deviceCount; i++) {
+            DeviceId src = DeviceId.deviceId(String.format("of:%016x", i + 1));
+            DeviceId dst = DeviceId.deviceId(String.format("of:%016x", (i + 1) % deviceCount + 1));
+            for (int p = 1; p <= PARALLEL_LINKS; p++) {
+                links.add(link(new ConnectPoint(src, PortNumber.portNumber(p)),
+                               new ConnectPoint(dst, PortNumber.portNumber(PARALLEL_LINKS + p))));
+                links.add(link(new ConnectPoint(dst, PortNumber.portNumber(PARALLEL_LINKS + p)),
+                               new ConnectPoint(src, PortNumber.portNumber(p))));
+            }
+        }
+
+        BaseResource.setServiceDirectory(new TestServiceDirectory()
+                .add(LinkService.class, new LinkServiceAdapter() {
+                    @Override
+                    public Iterable<Link> getLinks() {
+                        return links;
+                    }
+                }));
+        resource = new TopologyResource();
+    }
+
+    private static Link link(ConnectPoint src, ConnectPoint dst) {
+        return DefaultLink.builder()
+                .providerId(PROVIDER_ID)
+                .src(src)
+                .dst(dst)
+                .type(Link.Type.DIRECT)
+                .state(Link.State.ACTIVE)
+                .build();
+    }
+
+    @Benchmark
+    public Map<String, ?> aggregateLinks() {
+        return resource.aggregateLinks();
+    }
+}
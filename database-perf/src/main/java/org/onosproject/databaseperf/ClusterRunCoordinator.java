@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.onlab.util.KryoNamespace;
+import org.onosproject.cluster.ClusterService;
+import org.onosproject.cluster.ControllerNode;
+import org.onosproject.store.cluster.messaging.ClusterCommunicationService;
+import org.onosproject.store.cluster.messaging.MessageSubject;
+import org.slf4j.Logger;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Starts and stops benchmark runs on all cluster nodes at once and collects
+ * their results.
+ * <p>
+ * Runs start at an absolute wall clock time handed out by the coordinating
+ * node, so node clocks are expected to be synchronized, e.g. over NTP.
+ * </p>
+ */
+public class ClusterRunCoordinator {
+
+    /**
+     * Benchmark run of the local node, driven by the coordinator.
+     */
+    public interface LocalRun {
+
+        /**
+         * Stops any ongoing run and schedules a new one.
+         *
+         * @param startTime wall clock time at which to start, in milliseconds since epoch
+         */
+        void startAt(long startTime);
+
+        /**
+         * Stops the ongoing run and returns its cumulative results.
+         *
+         * @return results of the run
+         */
+        PerfReport stopAndReport();
+    }
+
+    private static final MessageSubject START = new MessageSubject("onos-app-database-perf-start");
+    private static final MessageSubject STOP = new MessageSubject("onos-app-database-perf-stop");
+
+    // Leaves every node enough time to receive the start message and to warm up
+    private static final long START_LEAD_TIME = 2000; //ms
+    // Leaves every node enough time to stop its run and to reply on top of it
+    private static final long STOP_MARGIN = 5000; //ms
+    private static final long STOP_TIMEOUT = DatabasePerfInstaller.MAX_STOP_TIME + STOP_MARGIN;
+
+    private final Logger log = getLogger(getClass());
+
+    private final KryoNamespace kryo = new KryoNamespace.Builder()
+            .register(PerfReport.class, OperationReport.class, HistogramSnapshot.class,
+                      TreeMap.class, int[].class, long[].class)
+            .build();
+
+    private final ClusterCommunicationService communicationService;
+    private final ClusterService clusterService;
+    private final LocalRun localRun;
+    private final Executor executor;
+
+    /**
+     * Creates a coordinator.
+     *
+     * @param communicationService cluster communication service
+     * @param clusterService cluster service
+     * @param localRun run of the local node
+     * @param executor executor on which remote requests are handled
+     */
+    public ClusterRunCoordinator(ClusterCommunicationService communicationService,
+                                 ClusterService clusterService,
+                                 LocalRun localRun, Executor executor) {
+        this.communicationService = communicationService;
+        this.clusterService = clusterService;
+        this.localRun = localRun;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts handling requests from other nodes.
+     */
+    public void activate() {
+        communicationService.<Long>addSubscriber(START, kryo::deserialize,
+                                                 localRun::startAt, executor);
+        communicationService.<Long, PerfReport>addSubscriber(STOP, kryo::deserialize,
+                                                             time -> localRun.stopAndReport(),
+                                                             kryo::serialize, executor);
+    }
+
+    /**
+     * Stops handling requests from other nodes.
+     */
+    public void deactivate() {
+        communicationService.removeSubscriber(START);
+        communicationService.removeSubscriber(STOP);
+    }
+
+    /**
+     * Starts a new run on all nodes at the same instant.
+     */
+    public void startRun() {
+        long startTime = System.currentTimeMillis() + START_LEAD_TIME;
+        communicationService.broadcastIncludeSelf(startTime, START, kryo::serialize);
+        log.info("Cluster run starting at {}", startTime);
+    }
+
+    /**
+     * Stops the run on all nodes and collects their results. Nodes that do
+     * not reply in time are left out and logged.
+     *
+     * @return results of the responding nodes
+     */
+    public List<PerfReport> stopRun() {
+        long stopTime = System.currentTimeMillis();
+        Map<ControllerNode, CompletableFuture<PerfReport>> replies = clusterService.getNodes().stream()
+                .collect(Collectors.toMap(node -> node,
+                                          node -> communicationService.sendAndReceive(
+                                                  stopTime, STOP, kryo::serialize,
+                                                  kryo::deserialize, node.id())));
+
+        // All nodes stop concurrently, so they share a single deadline
+        long deadline = System.currentTimeMillis() + STOP_TIMEOUT;
+        ImmutableList.Builder<PerfReport> reports = ImmutableList.builder();
+        List<String> missing = new ArrayList<>();
+        replies.forEach((node, reply) -> {
+            if (Thread.currentThread().isInterrupted()) {
+                missing.add(node.id().toString());
+                return;
+            }
+            try {
+                long timeout = Math.max(0, deadline - System.currentTimeMillis());
+                reports.add(reply.get(timeout, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                missing.add(node.id().toString());
+            } catch (Exception e) {
+                log.warn("No results from node {}: {}", node.id(), e.getMessage());
+                missing.add(node.id().toString());
+            }
+        });
+        if (!missing.isEmpty()) {
+            log.warn("Cluster results are missing nodes {}", missing);
+        }
+        return reports.build();
+    }
+}
@@ -15,40 +15,56 @@
  */
 package org.onosproject.databaseperf;
 
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static org.apache.felix.scr.annotations.ReferenceCardinality.MANDATORY_UNARY;
-import static org.onlab.util.Tools.delay;
+import static org.onlab.util.Tools.get;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Dictionary;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.stream.IntStream;
 
-import org.apache.commons.lang.math.RandomUtils;
+import org.apache.commons.lang.RandomStringUtils;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
-import org.onlab.util.KryoNamespace;
+import org.apache.felix.scr.annotations.Service;
+import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.cluster.ClusterService;
+import org.onosproject.cluster.LeadershipService;
 import org.onosproject.cluster.ControllerNode;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
-import org.onosproject.store.service.ConsistentMap;
+import org.onosproject.store.cluster.messaging.ClusterCommunicationService;
+import org.onosproject.store.service.AsyncConsistentMap;
 import org.onosproject.store.service.Serializer;
 import org.onosproject.store.service.StorageService;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
 /**
  * Application to measure partitioned database performance.
  */
 @Component(immediate = true)
-public class DatabasePerfInstaller {
+@Service
+public class DatabasePerfInstaller implements DatabasePerfService {
 
     private final Logger log = getLogger(getClass());
 
@@ -61,64 +77,296 @@ public class DatabasePerfInstaller {
     @Reference(cardinality = MANDATORY_UNARY)
     protected StorageService storageService;
 
-    private boolean stopped;
+    @Reference(cardinality = MANDATORY_UNARY)
+    protected LeadershipService leadershipService;
 
-    private ApplicationId appId;
+    @Reference(cardinality = MANDATORY_UNARY)
+    protected ClusterCommunicationService communicationService;
 
-    private static final long REPORT_PERIOD = 5000L; //ms
-    private Timer reportTimer;
+    @Reference(cardinality = MANDATORY_UNARY)
+    protected ComponentConfigService cfgService;
 
-    private AtomicInteger successCount = new AtomicInteger(0);
-    private AtomicInteger failureCount = new AtomicInteger(0);
+    private static final int NUM_WORKERS = 2;
+    @Property(name = "numWorkers", intValue = NUM_WORKERS,
+            label = "Number of worker threads issuing database operations")
+    private int numWorkers = NUM_WORKERS;
 
-    private ConsistentMap<String, String> cmap;
+    private static final int KEY_SPACE_SIZE = 1000;
+    @Property(name = "keySpaceSize", intValue = KEY_SPACE_SIZE,
+            label = "Number of distinct keys operated upon")
+    private int keySpaceSize = KEY_SPACE_SIZE;
 
-    private ControllerNode localNode;
+    private static final int READ_PERCENTAGE = 50;
+    @Property(name = "readPercentage", intValue = READ_PERCENTAGE,
+            label = "Percentage of operations that are reads; the rest are writes")
+    private int readPercentage = READ_PERCENTAGE;
 
-    private long reportStartTime = System.currentTimeMillis();
+    private static final int VALUE_SIZE = 36;
+    @Property(name = "valueSize", intValue = VALUE_SIZE,
+            label = "Length in characters of the values written")
+    private int valueSize = VALUE_SIZE;
 
-    private static final int NUM_TASK_THREADS = 2;
-    private ExecutorService taskExecutor;
+    private static final String KEY_DISTRIBUTION = KeyGenerator.UNIFORM;
+    @Property(name = "keyDistribution", value = KEY_DISTRIBUTION,
+            label = "Key selection distribution; uniform, zipfian or hotspot")
+    private String keyDistribution = KEY_DISTRIBUTION;
 
-    private static final Serializer SERIALIZER = new Serializer() {
+    private static final int HOT_KEY_COUNT = 4;
+    @Property(name = "hotKeyCount", intValue = HOT_KEY_COUNT,
+            label = "Number of hot keys of the hotspot key distribution")
+    private int hotKeyCount = HOT_KEY_COUNT;
 
-        KryoNamespace kryo = new KryoNamespace.Builder().build();
+    private static final int HOT_KEY_PERCENTAGE = 90;
+    @Property(name = "hotKeyPercentage", intValue = HOT_KEY_PERCENTAGE,
+            label = "Percentage of operations the hotspot key distribution directs to the hot keys")
+    private int hotKeyPercentage = HOT_KEY_PERCENTAGE;
 
-        @Override
-        public <T> byte[] encode(T object) {
-            return kryo.serialize(object);
-        }
+    private static final int TARGET_OPS_PER_SECOND = 0;
+    @Property(name = "targetOpsPerSecond", intValue = TARGET_OPS_PER_SECOND,
+            label = "Aggregate operation rate to pace workers to; 0 runs workers unthrottled")
+    private int targetOpsPerSecond = TARGET_OPS_PER_SECOND;
 
-        @Override
-        public <T> T decode(byte[] bytes) {
-            return kryo.deserialize(bytes);
-        }
+    private static final String PRIMITIVE = PrimitiveBenchmarks.CONSISTENT_MAP;
+    @Property(name = "primitive", value = PRIMITIVE,
+            label = "Distributed primitive to benchmark; consistentMap, eventuallyConsistentMap, " +
+                    "set, counter, leaderElector, transaction, or contention for conditional " +
+                    "writes of a consistent map")
+    private String primitive = PRIMITIVE;
+
+    private static final String MODE_SYNC = "sync";
+    private static final String MODE_ASYNC = "async";
+    private static final String MODE_MIXED = "mixed";
+    private static final String MODE_SERIALIZER = "serializer";
+
+    private static final String MODE = MODE_SYNC;
+    @Property(name = "mode", value = MODE,
+            label = "Consistent map API driven by the workers; sync, async, or mixed to split " +
+                    "workers between both; serializer measures payload encoding alone")
+    private String mode = MODE;
+
+    private static final int ASYNC_WINDOW = 16;
+    @Property(name = "asyncWindow", intValue = ASYNC_WINDOW,
+            label = "Maximum number of in-flight operations per async worker")
+    private int asyncWindow = ASYNC_WINDOW;
+
+    private static final String SERIALIZER = StoreSerializers.KRYO;
+    @Property(name = "serializer", value = SERIALIZER,
+            label = "Serializer used by the store benchmarks; kryo, kryoApi or utf8")
+    private String serializer = SERIALIZER;
+
+    private static final String RESULTS_FILE = "";
+    @Property(name = "resultsFile", value = RESULTS_FILE,
+            label = "Local file every reporting interval is appended to; empty disables the export")
+    private String resultsFile = RESULTS_FILE;
+
+    private static final String RESULTS_FORMAT = "csv";
+    @Property(name = "resultsFormat", value = RESULTS_FORMAT,
+            label = "Format of the results file; csv or json (one object per line)")
+    private String resultsFormat = RESULTS_FORMAT;
+
+    private ApplicationId appId;
+
+    private static final long REPORT_PERIOD = 5000L; //ms
+    private Timer reportTimer;
+
+    private static final int REPORT_HISTORY_SIZE = 720; // one hour worth of periods
+    private final PerfMetrics metrics = new PerfMetrics(REPORT_HISTORY_SIZE);
+
+    private static final String ASYNC_GET = "async-get";
+    private static final String ASYNC_PUT = "async-put";
+    private static final String REPORT_FORMAT =
+            "{}: count={}, failed={}, conflicts={}, rate={}/s, p50={}us, p90={}us, p99={}us, p99.9={}us, max={}us";
+
+    private volatile ResultsFileWriter resultsWriter;
 
-    };
+    private ControllerNode localNode;
+
+    private static final long STOP_TIMEOUT = 5000L; //ms
+    // Longest a stop waits for the workers: once for them to finish their
+    // operation, once more after interrupting them
+    static final long MAX_STOP_TIME = 2 * STOP_TIMEOUT;
+    private volatile WorkerRun run;
+
+    private static final long START_DELAY = 2000L; //ms, take a breath to start
+    private ScheduledExecutorService runScheduler;
+    private ScheduledFuture<?> pendingStart;
+    private ClusterRunCoordinator coordinator;
+
+    // Pre-generated values so that value construction does not skew the measurement
+    private static final int VALUE_POOL_SIZE = 1024;
 
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
+        cfgService.registerProperties(getClass());
+        readComponentConfiguration(context);
+
         localNode = clusterService.getLocalNode();
         String nodeId = localNode.ip().toString();
         appId = coreService.registerApplication("org.onosproject.nettyperf."
                                                         + nodeId);
 
-        cmap = storageService.<String, String>consistentMapBuilder()
-                .withName("onos-app-database-perf-test-map")
-                .withSerializer(SERIALIZER)
-                .build();
-        taskExecutor = Executors.newFixedThreadPool(NUM_TASK_THREADS, groupedThreads("onos/database-perf", "worker"));
+        runScheduler = Executors.newSingleThreadScheduledExecutor(
+                groupedThreads("onos/database-perf", "coordinator"));
+        coordinator = new ClusterRunCoordinator(communicationService, clusterService,
+                                                new InternalLocalRun(), runScheduler);
+        coordinator.activate();
         log.info("Started with Application ID {}", appId.id());
-        start();
+        scheduleStart(START_DELAY);
     }
 
     @Deactivate
     public void deactivate() {
+        cfgService.unregisterProperties(getClass(), false);
+        coordinator.deactivate();
         stop();
+        runScheduler.shutdownNow();
         log.info("Stopped");
     }
 
-    public void start() {
+    @Modified
+    public void modified(ComponentContext context) {
+        stop();
+        readComponentConfiguration(context);
+        scheduleStart(START_DELAY);
+    }
+
+    /**
+     * Extracts the workload profile from the component configuration context.
+     *
+     * @param context the component context
+     */
+    private void readComponentConfiguration(ComponentContext context) {
+        Dictionary<?, ?> properties = context.getProperties();
+
+        numWorkers = getIntProperty(properties, "numWorkers", NUM_WORKERS, 1);
+        keySpaceSize = getIntProperty(properties, "keySpaceSize", KEY_SPACE_SIZE, 1);
+        readPercentage = Math.min(100, getIntProperty(properties, "readPercentage", READ_PERCENTAGE, 0));
+        valueSize = getIntProperty(properties, "valueSize", VALUE_SIZE, 1);
+        targetOpsPerSecond = getIntProperty(properties, "targetOpsPerSecond", TARGET_OPS_PER_SECOND, 0);
+        asyncWindow = getIntProperty(properties, "asyncWindow", ASYNC_WINDOW, 1);
+        hotKeyCount = Math.min(keySpaceSize, getIntProperty(properties, "hotKeyCount", HOT_KEY_COUNT, 1));
+        hotKeyPercentage = Math.min(100, getIntProperty(properties, "hotKeyPercentage", HOT_KEY_PERCENTAGE, 0));
+
+        String s = get(properties, "keyDistribution");
+        keyDistribution = isNullOrEmpty(s) ? KEY_DISTRIBUTION : s.trim();
+
+        s = get(properties, "primitive");
+        primitive = isNullOrEmpty(s) ? PRIMITIVE : s.trim();
+
+        s = get(properties, "mode");
+        mode = isNullOrEmpty(s) ? MODE : s.trim().toLowerCase();
+
+        s = get(properties, "serializer");
+        serializer = isNullOrEmpty(s) ? SERIALIZER : s.trim();
+
+        s = get(properties, "resultsFile");
+        resultsFile = isNullOrEmpty(s) ? RESULTS_FILE : s.trim();
+
+        s = get(properties, "resultsFormat");
+        resultsFormat = isNullOrEmpty(s) ? RESULTS_FORMAT : s.trim();
+
+        log.info("Configured. numWorkers={}, keySpaceSize={}, readPercentage={}, valueSize={}, " +
+                         "keyDistribution={}, hotKeyCount={}, hotKeyPercentage={}, targetOpsPerSecond={}, " +
+                         "primitive={}, mode={}, asyncWindow={}, serializer={}, resultsFile={}, resultsFormat={}",
+                 numWorkers, keySpaceSize, readPercentage, valueSize,
+                 keyDistribution, hotKeyCount, hotKeyPercentage, targetOpsPerSecond,
+                 primitive, mode, asyncWindow, serializer, resultsFile, resultsFormat);
+    }
+
+    private int getIntProperty(Dictionary<?, ?> properties, String name,
+                               int defaultValue, int minValue) {
+        String s = get(properties, name);
+        try {
+            return isNullOrEmpty(s) ? defaultValue : Math.max(minValue, Integer.parseInt(s.trim()));
+        } catch (NumberFormatException | ClassCastException e) {
+            log.info("{} Format Exception, using {}", name, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public List<PerfReport> recentReports(int count) {
+        return metrics.recentReports(count);
+    }
+
+    @Override
+    public PerfReport cumulativeReport() {
+        return metrics.cumulativeReport(localNode.id().toString());
+    }
+
+    @Override
+    public void startClusterRun() {
+        coordinator.startRun();
+    }
+
+    @Override
+    public List<PerfReport> stopClusterRun() {
+        return coordinator.stopRun();
+    }
+
+    private synchronized void scheduleStart(long delayMillis) {
+        if (pendingStart != null) {
+            pendingStart.cancel(false);
+        }
+        pendingStart = runScheduler.schedule(this::start, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void start() {
+        pendingStart = null;
+        if (run != null) {
+            return;
+        }
+
+        Serializer storeSerializer;
+        try {
+            storeSerializer = StoreSerializers.create(serializer);
+        } catch (IllegalArgumentException e) {
+            log.warn("{}, using {} instead", e.getMessage(), SERIALIZER);
+            serializer = SERIALIZER;
+            storeSerializer = StoreSerializers.create(serializer);
+        }
+
+        String workerMode;
+        RunRecorder recorder = new RunRecorder();
+        PrimitiveBenchmark benchmark = null;
+        SerializerBenchmark serializerBenchmark = null;
+        AsyncConsistentMap<String, String> asyncMap = null;
+        if (MODE_SERIALIZER.equals(mode)) {
+            serializerBenchmark = new SerializerBenchmark(appId);
+            workerMode = MODE_SERIALIZER;
+        } else {
+            try {
+                benchmark = PrimitiveBenchmarks.create(primitive, storageService,
+                                                       leadershipService, serializer, recorder);
+            } catch (IllegalArgumentException e) {
+                log.warn("{}, benchmarking {} instead", e.getMessage(), PRIMITIVE);
+                primitive = PRIMITIVE;
+                benchmark = PrimitiveBenchmarks.create(primitive, storageService,
+                                                       leadershipService, serializer, recorder);
+            }
+            boolean asyncCapable = PrimitiveBenchmarks.CONSISTENT_MAP.equals(primitive);
+            if (!asyncCapable && !MODE_SYNC.equals(mode)) {
+                log.warn("Only {} can be driven asynchronously, running {} in {} mode",
+                         PrimitiveBenchmarks.CONSISTENT_MAP, primitive, MODE_SYNC);
+            }
+            workerMode = asyncCapable ? mode : MODE_SYNC;
+            if (!MODE_SYNC.equals(workerMode)) {
+                asyncMap = storageService.<String, String>consistentMapBuilder()
+                        .withName(PrimitiveBenchmarks.MAP_NAME)
+                        .withSerializer(storeSerializer)
+                        .buildAsyncMap();
+            }
+        }
+
+        metrics.reset();
+        openResultsFile();
+        KeyGenerator keyGenerator = KeyGenerator.create(keyDistribution, keySpaceSize,
+                                                        hotKeyCount, hotKeyPercentage);
+        String[] values = new String[VALUE_POOL_SIZE];
+        for (int i = 0; i < VALUE_POOL_SIZE; i++) {
+            values[i] = RandomStringUtils.randomAlphanumeric(valueSize);
+        }
+
         long delay = System.currentTimeMillis() % REPORT_PERIOD;
         reportTimer = new Timer("onos-netty-perf-reporter");
         reportTimer.scheduleAtFixedRate(new TimerTask() {
@@ -128,50 +376,329 @@ public class DatabasePerfInstaller {
             }
         }, delay, REPORT_PERIOD);
 
-        stopped = false;
-        IntStream.range(0, NUM_TASK_THREADS).forEach(i -> {
-            taskExecutor.submit(() -> {
-                delay(2000); // take a breath to start
-                while (!stopped) {
-                    performDBOperation();
-                    delay(2); // take a breather
-                }
-            });
+        // Each worker is paced to its share of the aggregate target rate
+        long opIntervalNanos = targetOpsPerSecond > 0 ?
+                TimeUnit.SECONDS.toNanos(numWorkers) / targetOpsPerSecond : 0;
+
+        WorkerRun current = new WorkerRun(recorder, benchmark, serializerBenchmark, asyncMap,
+                                          keyGenerator, values);
+        run = current;
+        IntStream.range(0, numWorkers).forEach(i -> {
+            // In mixed mode every other worker drives the async API
+            if (MODE_SERIALIZER.equals(workerMode)) {
+                current.executor.submit(() -> runSerializerWorker(current, opIntervalNanos));
+                return;
+            }
+            boolean async = MODE_ASYNC.equals(workerMode) || (MODE_MIXED.equals(workerMode) && i % 2 == 1);
+            current.executor.submit(() -> runWorker(current, async, opIntervalNanos));
         });
     }
 
-    private void performDBOperation() {
-        String key = String.format("test%d", RandomUtils.nextInt(1000));
+    private void runWorker(WorkerRun current, boolean async, long opIntervalNanos) {
+        Semaphore inFlight = new Semaphore(asyncWindow);
+        long nextOpTime = System.nanoTime();
+        while (!current.stopped) {
+            nextOpTime = pace(nextOpTime, opIntervalNanos);
+            if (!async) {
+                performDBOperation(current);
+            } else if (acquire(inFlight, 1)) {
+                performAsyncDBOperation(current, inFlight);
+            }
+        }
+        if (async && !acquire(inFlight, asyncWindow)) {
+            log.warn("Async operations still in flight after stop.");
+        }
+    }
+
+    private void runSerializerWorker(WorkerRun current, long opIntervalNanos) {
+        long nextOpTime = System.nanoTime();
+        while (!current.stopped) {
+            nextOpTime = pace(nextOpTime, opIntervalNanos);
+            current.serializerBenchmark.runOnce(current.recorder);
+        }
+    }
+
+    /**
+     * Waits for the next operation slot when the workers are throttled.
+     *
+     * @param nextOpTime scheduled time of the previous operation
+     * @param opIntervalNanos interval between operations, 0 if unthrottled
+     * @return scheduled time of the next operation
+     */
+    private long pace(long nextOpTime, long opIntervalNanos) {
+        if (opIntervalNanos <= 0) {
+            return nextOpTime;
+        }
+        long next = nextOpTime + opIntervalNanos;
+        long wait = next - System.nanoTime();
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+        return next;
+    }
+
+    private boolean acquire(Semaphore semaphore, int permits) {
+        try {
+            return semaphore.tryAcquire(permits, 1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Operations completing after their run was stopped are not recorded,
+    // so that they never count towards the metrics of the next run
+    private void performDBOperation(WorkerRun current) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String key = current.keyGenerator.nextKey();
+        boolean read = random.nextInt(100) < readPercentage;
+        PrimitiveBenchmark benchmark = current.benchmark;
+        String operation = read ? benchmark.readOperation() : benchmark.writeOperation();
+        long start = System.nanoTime();
+        boolean success;
         try {
-            if (RandomUtils.nextBoolean()) {
-                cmap.put(key, UUID.randomUUID().toString());
+            if (read) {
+                benchmark.read(key);
             } else {
-                cmap.get(key);
+                benchmark.write(key, current.values[random.nextInt(VALUE_POOL_SIZE)]);
             }
-            successCount.incrementAndGet();
+            success = true;
         } catch (Exception e) {
-            failureCount.incrementAndGet();
+            success = false;
         }
+        record(current, operation, start, success);
     }
 
-    private void report() {
-        long delta = System.currentTimeMillis() - reportStartTime;
-        if (delta > 0) {
-            int rate = (int) Math.round(((successCount.get() * 1000.0) / delta));
-            log.info("Passed: {}, Failed: {}, Rate: {}",
-                    successCount.getAndSet(0), failureCount.getAndSet(0), rate);
-            reportStartTime = System.currentTimeMillis();
+    private void performAsyncDBOperation(WorkerRun current, Semaphore inFlight) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String key = current.keyGenerator.nextKey();
+        boolean read = random.nextInt(100) < readPercentage;
+        String operation = read ? ASYNC_GET : ASYNC_PUT;
+        long start = System.nanoTime();
+        try {
+            CompletableFuture<?> future = read ? current.asyncMap.get(key) :
+                    current.asyncMap.put(key, current.values[random.nextInt(VALUE_POOL_SIZE)]);
+            future.whenComplete((result, error) -> {
+                record(current, operation, start, error == null);
+                inFlight.release();
+            });
+        } catch (Exception e) {
+            record(current, operation, start, false);
+            inFlight.release();
+        }
+    }
+
+    private void record(WorkerRun current, String operation, long start, boolean success) {
+        if (success) {
+            current.recorder.recordSuccess(operation, start);
+        } else {
+            current.recorder.recordFailure(operation);
+        }
+    }
+
+    private void openResultsFile() {
+        if (resultsFile.isEmpty()) {
+            return;
+        }
+        try {
+            resultsWriter = new ResultsFileWriter(Paths.get(resultsFile), ResultsFormat.of(resultsFormat));
+            log.info("Appending results to {}", resultsWriter.path().toAbsolutePath());
+        } catch (IllegalArgumentException | IOException e) {
+            log.warn("Unable to export results to {}: {}", resultsFile, e.getMessage());
         }
     }
 
-    public void stop() {
-        reportTimer.cancel();
-        reportTimer = null;
-        stopped = true;
+    private void closeResultsFile() {
+        if (resultsWriter == null) {
+            return;
+        }
         try {
-            taskExecutor.awaitTermination(5, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            log.warn("Failed to stop worker.");
+            resultsWriter.close();
+        } catch (IOException e) {
+            log.warn("Unable to close results file {}: {}", resultsWriter.path(), e.getMessage());
+        }
+        resultsWriter = null;
+    }
+
+    private void report() {
+        PerfReport interval = metrics.closeInterval(localNode.id().toString());
+        ResultsFileWriter writer = resultsWriter;
+        if (writer != null) {
+            try {
+                writer.write(interval);
+            } catch (IOException e) {
+                log.warn("Unable to write results to {}: {}", writer.path(), e.getMessage());
+            }
+        }
+        WorkerRun current = run;
+        log.info("Interval of {} ms benchmarking {}:", interval.durationMillis(),
+                 current != null && current.serializerBenchmark != null ? MODE_SERIALIZER : primitive);
+        logReport(interval);
+        PerfReport cumulative = metrics.cumulativeReport(localNode.id().toString());
+        log.info("Cumulative over {} ms:", cumulative.durationMillis());
+        logReport(cumulative);
+    }
+
+    private void logReport(PerfReport report) {
+        report.operations().values().forEach(
+                op -> log.info(REPORT_FORMAT, op.operation(), op.count(), op.failures(), op.conflicts(),
+                               op.rate(report.durationMillis()),
+                               op.percentileMicros(50), op.percentileMicros(90),
+                               op.percentileMicros(99), op.percentileMicros(99.9),
+                               op.maxMicros()));
+    }
+
+    public synchronized void stop() {
+        if (pendingStart != null) {
+            pendingStart.cancel(false);
+            pendingStart = null;
+        }
+        if (reportTimer != null) {
+            reportTimer.cancel();
+            reportTimer = null;
+        }
+        WorkerRun stopping = run;
+        run = null;
+        if (stopping != null) {
+            stopping.stop();
+        }
+        closeResultsFile();
+    }
+
+    /**
+     * State of one benchmark run. Workers capture their run rather than
+     * reading the installer's fields, so workers outliving a stop neither
+     * resume nor record into the next run.
+     */
+    private final class WorkerRun {
+        private final ExecutorService executor =
+                Executors.newFixedThreadPool(numWorkers, groupedThreads("onos/database-perf", "worker-%d"));
+        private final RunRecorder recorder;
+        private final PrimitiveBenchmark benchmark;
+        private final SerializerBenchmark serializerBenchmark;
+        private final AsyncConsistentMap<String, String> asyncMap;
+        private final KeyGenerator keyGenerator;
+        private final String[] values;
+        private volatile boolean stopped;
+
+        private WorkerRun(RunRecorder recorder,
+                          PrimitiveBenchmark benchmark,
+                          SerializerBenchmark serializerBenchmark,
+                          AsyncConsistentMap<String, String> asyncMap,
+                          KeyGenerator keyGenerator,
+                          String[] values) {
+            this.recorder = recorder;
+            this.benchmark = benchmark;
+            this.serializerBenchmark = serializerBenchmark;
+            this.asyncMap = asyncMap;
+            this.keyGenerator = keyGenerator;
+            this.values = values;
+        }
+
+        /**
+         * Stops the workers, interrupting those still busy after the stop
+         * timeout. The benchmark is closed once all workers have terminated,
+         * in the background if that takes longer than the timeout.
+         */
+        private void stop() {
+            stopped = true;
+            recorder.close();
+            executor.shutdown();
+            if (awaitTermination(STOP_TIMEOUT)) {
+                closeBenchmark();
+                return;
+            }
+            executor.shutdownNow();
+            if (awaitTermination(STOP_TIMEOUT)) {
+                closeBenchmark();
+                return;
+            }
+            log.warn("Workers still busy after stop, closing the benchmark once they terminate.");
+            groupedThreads("onos/database-perf", "closer-%d").newThread(() -> {
+                while (!awaitTermination(STOP_TIMEOUT)) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        log.warn("Failed to close the benchmark.");
+                        return;
+                    }
+                }
+                closeBenchmark();
+            }).start();
+        }
+
+        private boolean awaitTermination(long timeoutMillis) {
+            try {
+                return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                log.warn("Failed to stop worker.");
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private void closeBenchmark() {
+            if (benchmark != null) {
+                benchmark.close();
+            }
+        }
+    }
+
+    /**
+     * Records the operations of one benchmark run into the metrics until the
+     * run is stopped. Benchmarks recording operations of their own are handed
+     * the recorder of their run rather than the metrics.
+     */
+    private final class RunRecorder implements OperationRecorder {
+        private volatile boolean closed;
+
+        @Override
+        public void recordSuccess(String operation, long startNanos) {
+            if (!closed) {
+                metrics.recordSuccess(operation, startNanos);
+            }
+        }
+
+        @Override
+        public void recordFailure(String operation) {
+            if (!closed) {
+                metrics.recordFailure(operation);
+            }
+        }
+
+        @Override
+        public void recordConflict(String operation) {
+            if (!closed) {
+                metrics.recordConflict(operation);
+            }
+        }
+
+        private void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Lets the cluster run coordinator drive the local benchmark run.
+     */
+    private class InternalLocalRun implements ClusterRunCoordinator.LocalRun {
+
+        @Override
+        public void startAt(long startTime) {
+            stop();
+            scheduleStart(Math.max(0, startTime - System.currentTimeMillis()));
+        }
+
+        @Override
+        public PerfReport stopAndReport() {
+            String node = localNode.id().toString();
+            synchronized (DatabasePerfInstaller.this) {
+                boolean running = run != null;
+                stop();
+                if (running) {
+                    // Close the partial interval the run was stopped in
+                    metrics.closeInterval(node);
+                }
+                return metrics.cumulativeReport(node);
+            }
         }
     }
 }
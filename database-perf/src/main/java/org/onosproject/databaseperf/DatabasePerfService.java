@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+import java.util.List;
+
+/**
+ * Service for retrieving the results of the database performance test.
+ */
+public interface DatabasePerfService {
+
+    /**
+     * Returns the most recent reporting interval results, oldest first.
+     * Interval reports only keep the reported latency percentiles.
+     *
+     * @param count maximum number of intervals to return
+     * @return interval report summaries
+     */
+    List<PerfReport> recentReports(int count);
+
+    /**
+     * Returns the results accumulated since the current run started.
+     *
+     * @return cumulative report
+     */
+    PerfReport cumulativeReport();
+
+    /**
+     * Starts a new run on all cluster nodes at the same instant.
+     */
+    void startClusterRun();
+
+    /**
+     * Stops the run on all cluster nodes and collects their results.
+     *
+     * @return cumulative results of each responding node
+     */
+    List<PerfReport> stopClusterRun();
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+import java.util.Arrays;
+
+/**
+ * Immutable point-in-time copy of a {@link LatencyHistogram}. Only the
+ * non-empty buckets are kept, as most of the histogram range goes unused.
+ */
+public final class HistogramSnapshot {
+
+    private static final HistogramSnapshot EMPTY =
+            new HistogramSnapshot(new int[0], new long[0], 0, 0);
+
+    // Indices of the non-empty buckets in ascending order, and their counts
+    private final int[] buckets;
+    private final long[] counts;
+    private final long totalCount;
+    private final long maxValue;
+
+    HistogramSnapshot(long[] bucketCounts, long totalCount, long maxValue) {
+        int used = 0;
+        for (long count : bucketCounts) {
+            if (count != 0) {
+                used++;
+            }
+        }
+        this.buckets = new int[used];
+        this.counts = new long[used];
+        for (int i = 0, j = 0; i < bucketCounts.length; i++) {
+            if (bucketCounts[i] != 0) {
+                buckets[j] = i;
+                counts[j++] = bucketCounts[i];
+            }
+        }
+        this.totalCount = totalCount;
+        this.maxValue = maxValue;
+    }
+
+    private HistogramSnapshot(int[] buckets, long[] counts, long totalCount, long maxValue) {
+        this.buckets = buckets;
+        this.counts = counts;
+        this.totalCount = totalCount;
+        this.maxValue = maxValue;
+    }
+
+    /**
+     * Returns a snapshot with no recorded values.
+     *
+     * @return empty snapshot
+     */
+    public static HistogramSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return value count
+     */
+    public long totalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return maximum value
+     */
+    public long maxValue() {
+        return maxValue;
+    }
+
+    /**
+     * Returns the value below which the given percentage of recorded values fall.
+     *
+     * @param percentile percentile in the range [0, 100]
+     * @return value at percentile, or 0 if nothing was recorded
+     */
+    public long valueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= countAtPercentile) {
+                return Math.min(LatencyHistogram.highestEquivalentValue(buckets[i]), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * Returns a new snapshot holding the values of this and the given snapshot.
+     *
+     * @param other snapshot to merge with
+     * @return merged snapshot
+     */
+    public HistogramSnapshot merge(HistogramSnapshot other) {
+        int[] mergedBuckets = new int[buckets.length + other.buckets.length];
+        long[] mergedCounts = new long[mergedBuckets.length];
+        int i = 0;
+        int j = 0;
+        int used = 0;
+        while (i < buckets.length || j < other.buckets.length) {
+            if (j == other.buckets.length || (i < buckets.length && buckets[i] < other.buckets[j])) {
+                mergedBuckets[used] = buckets[i];
+                mergedCounts[used++] = counts[i++];
+            } else if (i == buckets.length || other.buckets[j] < buckets[i]) {
+                mergedBuckets[used] = other.buckets[j];
+                mergedCounts[used++] = other.counts[j++];
+            } else {
+                mergedBuckets[used] = buckets[i];
+                mergedCounts[used++] = counts[i++] + other.counts[j++];
+            }
+        }
+        return new HistogramSnapshot(Arrays.copyOf(mergedBuckets, used), Arrays.copyOf(mergedCounts, used),
+                                     totalCount + other.totalCount, Math.max(maxValue, other.maxValue));
+    }
+}
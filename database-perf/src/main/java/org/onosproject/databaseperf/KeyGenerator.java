@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Picks keys out of a fixed size key space following a given distribution.
+ * Generators are stateless after construction and safe to share between
+ * worker threads.
+ */
+public abstract class KeyGenerator {
+
+    /**
+     * Name of the uniform key distribution.
+     */
+    public static final String UNIFORM = "uniform";
+
+    /**
+     * Name of the Zipfian key distribution.
+     */
+    public static final String ZIPFIAN = "zipfian";
+
+    /**
+     * Name of the hot spot key distribution, directing a given share of the
+     * operations to a handful of hot keys.
+     */
+    public static final String HOTSPOT = "hotspot";
+
+    // Same skew YCSB uses for its default zipfian workloads
+    private static final double ZIPFIAN_CONSTANT = 0.99;
+
+    private static final String KEY_FORMAT = "test%d";
+
+    protected final int keySpaceSize;
+
+    protected KeyGenerator(int keySpaceSize) {
+        checkArgument(keySpaceSize > 0, "Key space size must be positive");
+        this.keySpaceSize = keySpaceSize;
+    }
+
+    /**
+     * Creates a key generator for the given distribution name.
+     *
+     * @param distribution distribution name, either {@link #UNIFORM} or {@link #ZIPFIAN}
+     * @param keySpaceSize number of distinct keys
+     * @return key generator
+     */
+    public static KeyGenerator create(String distribution, int keySpaceSize) {
+        return create(distribution, keySpaceSize, 0, 0);
+    }
+
+    /**
+     * Creates a key generator for the given distribution name.
+     *
+     * @param distribution distribution name, {@link #UNIFORM}, {@link #ZIPFIAN} or {@link #HOTSPOT}
+     * @param keySpaceSize number of distinct keys
+     * @param hotKeyCount number of hot keys of the hot spot distribution
+     * @param hotKeyPercentage percentage of keys picked among the hot keys by
+     *                         the hot spot distribution
+     * @return key generator
+     */
+    public static KeyGenerator create(String distribution, int keySpaceSize,
+                                      int hotKeyCount, int hotKeyPercentage) {
+        if (ZIPFIAN.equalsIgnoreCase(distribution)) {
+            return new Zipfian(keySpaceSize, ZIPFIAN_CONSTANT);
+        }
+        if (HOTSPOT.equalsIgnoreCase(distribution)) {
+            return new HotSpot(keySpaceSize, hotKeyCount, hotKeyPercentage);
+        }
+        return new Uniform(keySpaceSize);
+    }
+
+    /**
+     * Returns the index of the next key, in the range [0, keySpaceSize).
+     *
+     * @return key index
+     */
+    public abstract int nextIndex();
+
+    /**
+     * Returns the next key.
+     *
+     * @return key
+     */
+    public String nextKey() {
+        return key(nextIndex());
+    }
+
+    /**
+     * Returns the key for the given index.
+     *
+     * @param index key index
+     * @return key
+     */
+    public static String key(int index) {
+        return String.format(KEY_FORMAT, index);
+    }
+
+    /**
+     * Returns the number of distinct keys.
+     *
+     * @return key space size
+     */
+    public int keySpaceSize() {
+        return keySpaceSize;
+    }
+
+    private static final class Uniform extends KeyGenerator {
+
+        private Uniform(int keySpaceSize) {
+            super(keySpaceSize);
+        }
+
+        @Override
+        public int nextIndex() {
+            return ThreadLocalRandom.current().nextInt(keySpaceSize);
+        }
+    }
+
+    /**
+     * Picks one of the first hotKeyCount keys with the given probability,
+     * and one of the remaining keys otherwise.
+     */
+    private static final class HotSpot extends KeyGenerator {
+
+        private final int hotKeyCount;
+        private final int hotKeyPercentage;
+
+        private HotSpot(int keySpaceSize, int hotKeyCount, int hotKeyPercentage) {
+            super(keySpaceSize);
+            checkArgument(hotKeyCount > 0 && hotKeyCount <= keySpaceSize,
+                          "Hot key count must be between 1 and the key space size");
+            this.hotKeyCount = hotKeyCount;
+            this.hotKeyPercentage = hotKeyPercentage;
+        }
+
+        @Override
+        public int nextIndex() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (hotKeyCount == keySpaceSize || random.nextInt(100) < hotKeyPercentage) {
+                return random.nextInt(hotKeyCount);
+            }
+            return hotKeyCount + random.nextInt(keySpaceSize - hotKeyCount);
+        }
+    }
+
+    /**
+     * Zipfian generator after Gray et al, "Quickly Generating Billion-Record
+     * Synthetic Databases". Low indexes are the most popular ones.
+     */
+    private static final class Zipfian extends KeyGenerator {
+
+        private final double theta;
+        private final double zetan;
+        private final double alpha;
+        private final double eta;
+
+        private Zipfian(int keySpaceSize, double theta) {
+            super(keySpaceSize);
+            this.theta = theta;
+            this.zetan = zeta(keySpaceSize, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / keySpaceSize, 1 - theta))
+                    / (1 - zeta(2, theta) / zetan);
+        }
+
+        private static double zeta(long n, double theta) {
+            double sum = 0;
+            for (long i = 0; i < n; i++) {
+                sum += 1 / Math.pow(i + 1, theta);
+            }
+            return sum;
+        }
+
+        @Override
+        public int nextIndex() {
+            double u = ThreadLocalRandom.current().nextDouble();
+            double uz = u * zetan;
+            if (uz < 1.0) {
+                return 0;
+            }
+            if (uz < 1.0 + Math.pow(0.5, theta)) {
+                return Math.min(1, keySpaceSize - 1);
+            }
+            int index = (int) (keySpaceSize * Math.pow(eta * u - eta + 1, alpha));
+            return Math.min(index, keySpaceSize - 1);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent latency recorder with HDR-style log-linear buckets.
+ * <p>
+ * Values below 2^SUB_BUCKET_BITS are counted exactly; above that every
+ * power of two is split into 2^SUB_BUCKET_BITS equal buckets, which bounds
+ * the relative error of any reported value to under 1%.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 7;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+    // Largest trackable magnitude; larger values are clamped into the last bucket
+    private static final int MAX_MAGNITUDE = 40;
+
+    static final int BUCKET_COUNT =
+            SUB_BUCKET_COUNT + (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Records a single value.
+     *
+     * @param value value to record; negative values are recorded as 0
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucketIndex(v));
+        long max = maxValue.get();
+        while (v > max && !maxValue.compareAndSet(max, v)) {
+            max = maxValue.get();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the values recorded so far and resets the
+     * recorder. Values recorded concurrently with the reset land either in
+     * the returned snapshot or in the next one.
+     *
+     * @return histogram snapshot
+     */
+    public HistogramSnapshot snapshotAndReset() {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.getAndSet(i, 0);
+            total += snapshot[i];
+        }
+        return new HistogramSnapshot(snapshot, total, maxValue.getAndSet(0));
+    }
+
+    /**
+     * Returns the bucket index for the given value.
+     *
+     * @param value non-negative value
+     * @return bucket index
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK;
+        return SUB_BUCKET_COUNT + (magnitude - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Returns the largest value that maps to the given bucket index.
+     *
+     * @param index bucket index
+     * @return highest value equivalent to the bucket
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int magnitude = (index >> SUB_BUCKET_BITS) - 1 + SUB_BUCKET_BITS;
+        long subBucket = index & SUB_BUCKET_MASK;
+        int shift = magnitude - SUB_BUCKET_BITS;
+        long lowest = (1L << magnitude) | (subBucket << shift);
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+/**
+ * Sink of the outcomes of benchmarked operations.
+ */
+public interface OperationRecorder {
+
+    /**
+     * Records a successful operation.
+     *
+     * @param operation operation name
+     * @param startNanos {@link System#nanoTime()} at which the operation was issued
+     */
+    void recordSuccess(String operation, long startNanos);
+
+    /**
+     * Records a failed operation.
+     *
+     * @param operation operation name
+     */
+    void recordFailure(String operation);
+
+    /**
+     * Records an attempt of a conditional operation lost to a concurrent
+     * writer.
+     *
+     * @param operation operation name
+     */
+    void recordConflict(String operation);
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Counters and latency distribution of a single operation type over a
+ * reporting period. Latencies are recorded in nanoseconds.
+ * <p>
+ * Summaries keep the reported percentiles only and drop the latency
+ * distribution, so that a long history of them stays small.
+ * </p>
+ */
+public final class OperationReport {
+
+    /**
+     * Percentiles available from every report, including summaries.
+     */
+    public static final double[] REPORTED_PERCENTILES = {50, 90, 99, 99.9};
+
+    private final String operation;
+    private final long count;
+    private final long failures;
+    private final long conflicts;
+    private final long maxValue;
+    private final long[] percentileValues;
+    private final HistogramSnapshot latency;
+
+    /**
+     * Creates an operation report.
+     *
+     * @param operation operation name
+     * @param count number of successful operations
+     * @param failures number of failed operations
+     * @param conflicts number of attempts lost to concurrent writers
+     * @param latency latency distribution of the successful operations
+     */
+    public OperationReport(String operation, long count, long failures,
+                           long conflicts, HistogramSnapshot latency) {
+        this.operation = operation;
+        this.count = count;
+        this.failures = failures;
+        this.conflicts = conflicts;
+        this.maxValue = latency.maxValue();
+        this.percentileValues = new long[REPORTED_PERCENTILES.length];
+        for (int i = 0; i < REPORTED_PERCENTILES.length; i++) {
+            percentileValues[i] = latency.valueAtPercentile(REPORTED_PERCENTILES[i]);
+        }
+        this.latency = latency;
+    }
+
+    private OperationReport(OperationReport report) {
+        this.operation = report.operation;
+        this.count = report.count;
+        this.failures = report.failures;
+        this.conflicts = report.conflicts;
+        this.maxValue = report.maxValue;
+        this.percentileValues = report.percentileValues;
+        this.latency = null;
+    }
+
+    public String operation() {
+        return operation;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long failures() {
+        return failures;
+    }
+
+    /**
+     * Returns the number of attempts of a conditional operation lost to a
+     * concurrent writer; always 0 for unconditional operations.
+     *
+     * @return number of conflicts
+     */
+    public long conflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Returns the latency distribution of the successful operations.
+     *
+     * @return latency distribution, or null for summaries
+     */
+    public HistogramSnapshot latency() {
+        return latency;
+    }
+
+    /**
+     * Returns a copy of this report without its latency distribution.
+     *
+     * @return report summary
+     */
+    public OperationReport summary() {
+        return latency == null ? this : new OperationReport(this);
+    }
+
+    /**
+     * Returns the successful operation rate over the given period.
+     *
+     * @param durationMillis length of the period in milliseconds
+     * @return operations per second
+     */
+    public long rate(long durationMillis) {
+        return durationMillis > 0 ? Math.round(count * 1000.0 / durationMillis) : 0;
+    }
+
+    /**
+     * Returns the latency at the given percentile in microseconds.
+     *
+     * @param percentile percentile between 0 and 100; one of the
+     *                   {@link #REPORTED_PERCENTILES} for summaries
+     * @return latency in microseconds
+     * @throws IllegalArgumentException if the percentile is not available
+     */
+    public double percentileMicros(double percentile) {
+        if (latency != null) {
+            return latency.valueAtPercentile(percentile) / 1000.0;
+        }
+        for (int i = 0; i < REPORTED_PERCENTILES.length; i++) {
+            if (REPORTED_PERCENTILES[i] == percentile) {
+                return percentileValues[i] / 1000.0;
+            }
+        }
+        throw new IllegalArgumentException("Percentile " + percentile + " not kept in summary of " + operation);
+    }
+
+    /**
+     * Returns the highest latency in microseconds.
+     *
+     * @return latency in microseconds
+     */
+    public double maxMicros() {
+        return maxValue / 1000.0;
+    }
+
+    /**
+     * Returns a report holding the counters and latencies of this and the
+     * given report for the same operation.
+     *
+     * @param other report to merge with
+     * @return merged report
+     * @throws IllegalStateException if either report is a summary
+     */
+    public OperationReport merge(OperationReport other) {
+        if (latency == null || other.latency == null) {
+            throw new IllegalStateException("Summaries of " + operation + " cannot be merged");
+        }
+        return new OperationReport(operation, count + other.count,
+                                   failures + other.failures,
+                                   conflicts + other.conflicts,
+                                   latency.merge(other.latency));
+    }
+
+    @Override
+    public String toString() {
+        // In the order of REPORTED_PERCENTILES
+        return toStringHelper(this)
+                .add("operation", operation)
+                .add("count", count)
+                .add("failures", failures)
+                .add("conflicts", conflicts)
+                .add("p50", percentileValues[0])
+                .add("p90", percentileValues[1])
+                .add("p99", percentileValues[2])
+                .add("p99.9", percentileValues[3])
+                .add("max", maxValue)
+                .toString();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Per-operation counters and latency histograms of a benchmark run, along
+ * with the history of the most recent reporting intervals and the results
+ * accumulated since the run started. Only the cumulative results keep a
+ * latency histogram; the history holds interval summaries.
+ */
+public class PerfMetrics implements OperationRecorder {
+
+    private final Map<String, OperationMetrics> metrics = new ConcurrentHashMap<>();
+
+    private final int historySize;
+    private final Deque<PerfReport> history = new ArrayDeque<>();
+    private final Map<String, OperationReport> cumulative = Maps.newHashMap();
+
+    private long runStartTime = System.currentTimeMillis();
+    private long intervalStartTime = runStartTime;
+
+    /**
+     * Creates a metrics registry.
+     *
+     * @param historySize number of interval reports to retain
+     */
+    public PerfMetrics(int historySize) {
+        this.historySize = historySize;
+    }
+
+    @Override
+    public void recordSuccess(String operation, long startNanos) {
+        // Nanosecond resolution so that sub-microsecond operations such as
+        // serialization remain distinguishable
+        metrics(operation).latency.record(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public void recordFailure(String operation) {
+        metrics(operation).failures.increment();
+    }
+
+    @Override
+    public void recordConflict(String operation) {
+        metrics(operation).conflicts.increment();
+    }
+
+    private OperationMetrics metrics(String operation) {
+        OperationMetrics m = metrics.get(operation);
+        return m != null ? m : metrics.computeIfAbsent(operation, k -> new OperationMetrics());
+    }
+
+    /**
+     * Closes the current reporting interval, adding it to the history and
+     * the cumulative results.
+     *
+     * @param node identifier of the local node
+     * @return report of the interval just closed
+     */
+    public synchronized PerfReport closeInterval(String node) {
+        long now = System.currentTimeMillis();
+        Map<String, OperationReport> operations = Maps.newHashMap();
+        metrics.forEach((name, m) -> {
+            HistogramSnapshot latency = m.latency.snapshotAndReset();
+            OperationReport report = new OperationReport(name, latency.totalCount(),
+                                                         m.failures.sumThenReset(),
+                                                         m.conflicts.sumThenReset(), latency);
+            operations.put(name, report);
+            cumulative.merge(name, report, OperationReport::merge);
+        });
+        PerfReport report = new PerfReport(node, now, now - intervalStartTime, operations);
+        intervalStartTime = now;
+
+        history.addLast(report.summary());
+        while (history.size() > historySize) {
+            history.removeFirst();
+        }
+        return report;
+    }
+
+    /**
+     * Returns the results accumulated since the run started, up to the last
+     * closed interval.
+     *
+     * @param node identifier of the local node
+     * @return cumulative report
+     */
+    public synchronized PerfReport cumulativeReport(String node) {
+        return new PerfReport(node, intervalStartTime,
+                              intervalStartTime - runStartTime, cumulative);
+    }
+
+    /**
+     * Returns the summaries of the most recent interval reports, oldest first.
+     *
+     * @param count maximum number of reports to return
+     * @return interval reports
+     */
+    public synchronized List<PerfReport> recentReports(int count) {
+        List<PerfReport> reports = Lists.newArrayList(history);
+        return ImmutableList.copyOf(reports.subList(Math.max(0, reports.size() - count), reports.size()));
+    }
+
+    /**
+     * Discards all recorded values and starts a new run.
+     */
+    public synchronized void reset() {
+        metrics.clear();
+        history.clear();
+        cumulative.clear();
+        runStartTime = System.currentTimeMillis();
+        intervalStartTime = runStartTime;
+    }
+
+    private static final class OperationMetrics {
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+    }
+}
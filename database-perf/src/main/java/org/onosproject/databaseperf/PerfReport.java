@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Results of all operation types over a single reporting period.
+ */
+public final class PerfReport {
+
+    private final String node;
+    private final long timestamp;
+    private final long durationMillis;
+    // Plain TreeMap so that reports can be shipped between nodes as is
+    private final TreeMap<String, OperationReport> operations;
+
+    /**
+     * Creates a report.
+     *
+     * @param node identifier of the reporting node
+     * @param timestamp end of the reporting period, in milliseconds since epoch
+     * @param durationMillis length of the reporting period in milliseconds
+     * @param operations per-operation results keyed by operation name
+     */
+    public PerfReport(String node, long timestamp, long durationMillis,
+                      Map<String, OperationReport> operations) {
+        this.node = node;
+        this.timestamp = timestamp;
+        this.durationMillis = durationMillis;
+        this.operations = new TreeMap<>(operations);
+    }
+
+    /**
+     * Merges the reports of several nodes covering the same period into one.
+     * Counters and latency distributions are summed up per operation, and
+     * the merged period spans the longest of the given ones.
+     *
+     * @param node identifier of the merged report
+     * @param reports reports to merge
+     * @return merged report
+     */
+    public static PerfReport merge(String node, Collection<PerfReport> reports) {
+        Map<String, OperationReport> operations = new TreeMap<>();
+        long timestamp = 0;
+        long durationMillis = 0;
+        for (PerfReport report : reports) {
+            report.operations.forEach((name, op) -> operations.merge(name, op, OperationReport::merge));
+            timestamp = Math.max(timestamp, report.timestamp);
+            durationMillis = Math.max(durationMillis, report.durationMillis);
+        }
+        return new PerfReport(node, timestamp, durationMillis, operations);
+    }
+
+    public String node() {
+        return node;
+    }
+
+    public long timestamp() {
+        return timestamp;
+    }
+
+    public long durationMillis() {
+        return durationMillis;
+    }
+
+    public SortedMap<String, OperationReport> operations() {
+        return Collections.unmodifiableSortedMap(operations);
+    }
+
+    /**
+     * Returns a copy of this report holding operation summaries only.
+     *
+     * @return report summary
+     * @see OperationReport#summary()
+     */
+    public PerfReport summary() {
+        Map<String, OperationReport> summaries = new TreeMap<>();
+        operations.forEach((name, op) -> summaries.put(name, op.summary()));
+        return new PerfReport(node, timestamp, durationMillis, summaries);
+    }
+
+    /**
+     * Returns the total successful operation count across all operations.
+     *
+     * @return operation count
+     */
+    public long totalCount() {
+        return operations.values().stream().mapToLong(OperationReport::count).sum();
+    }
+
+    /**
+     * Returns the total failure count across all operations.
+     *
+     * @return failure count
+     */
+    public long totalFailures() {
+        return operations.values().stream().mapToLong(OperationReport::failures).sum();
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("node", node)
+                .add("timestamp", timestamp)
+                .add("durationMillis", durationMillis)
+                .add("operations", operations.values())
+                .toString();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+/**
+ * Blocking read and write operations against a single distributed primitive.
+ * Implementations throw on failure so that the caller can count it.
+ */
+public interface PrimitiveBenchmark {
+
+    /**
+     * Returns the name under which read operations are reported.
+     *
+     * @return read operation name
+     */
+    String readOperation();
+
+    /**
+     * Returns the name under which write operations are reported.
+     *
+     * @return write operation name
+     */
+    String writeOperation();
+
+    /**
+     * Performs a read of the given key.
+     *
+     * @param key key to read
+     */
+    void read(String key);
+
+    /**
+     * Performs a write of the given key.
+     *
+     * @param key key to write
+     * @param value value to write
+     */
+    void write(String key, String value);
+
+    /**
+     * Releases any state held in the primitive on behalf of the benchmark.
+     */
+    default void close() {
+    }
+}
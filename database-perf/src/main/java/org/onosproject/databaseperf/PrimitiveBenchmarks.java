@@ -0,0 +1,453 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.onosproject.cluster.LeadershipService;
+import org.onosproject.store.service.AtomicCounter;
+import org.onosproject.store.service.CommitStatus;
+import org.onosproject.store.service.ConsistentMap;
+import org.onosproject.store.service.ConsistentMapException;
+import org.onosproject.store.service.DistributedSet;
+import org.onosproject.store.service.EventuallyConsistentMap;
+import org.onosproject.store.service.Serializer;
+import org.onosproject.store.service.StorageService;
+import org.onosproject.store.service.TransactionContext;
+import org.onosproject.store.service.TransactionalMap;
+import org.onosproject.store.service.Versioned;
+import org.onosproject.store.service.WallClockTimestamp;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Factory of the benchmarks of the distributed primitives.
+ */
+public final class PrimitiveBenchmarks {
+
+    public static final String CONSISTENT_MAP = "consistentMap";
+    public static final String EVENTUALLY_CONSISTENT_MAP = "eventuallyConsistentMap";
+    public static final String SET = "set";
+    public static final String COUNTER = "counter";
+    public static final String LEADER_ELECTOR = "leaderElector";
+    public static final String TRANSACTION = "transaction";
+    public static final String CONTENTION = "contention";
+
+    /**
+     * Name of the consistent map the map benchmarks operate upon.
+     */
+    public static final String MAP_NAME = "onos-app-database-perf-test-map";
+
+    private static final String NAME_PREFIX = "onos-app-database-perf-test-";
+
+    // Number of consecutive keys updated by a single transaction
+    private static final int TRANSACTION_SIZE = 4;
+
+    // Attempts of a conditional write before it is given up on
+    private static final int MAX_ATTEMPTS = 10;
+
+    private PrimitiveBenchmarks() {
+    }
+
+    /**
+     * Creates the benchmark for the named primitive.
+     *
+     * @param primitive primitive name
+     * @param storageService storage service
+     * @param leadershipService leadership service
+     * @param serializerName name of the serializer for keys and values
+     * @param recorder recorder for benchmarks reporting more than their read and write operations
+     * @return primitive benchmark
+     * @throws IllegalArgumentException if the primitive is unknown, or cannot
+     *                                  be used with the serializer
+     */
+    public static PrimitiveBenchmark create(String primitive,
+                                            StorageService storageService,
+                                            LeadershipService leadershipService,
+                                            String serializerName,
+                                            OperationRecorder recorder) {
+        Serializer serializer = StoreSerializers.create(serializerName);
+        switch (primitive) {
+            case CONSISTENT_MAP:
+                return new ConsistentMapBenchmark(storageService, serializer);
+            case EVENTUALLY_CONSISTENT_MAP:
+                return new EventuallyConsistentMapBenchmark(storageService, serializerName);
+            case SET:
+                return new SetBenchmark(storageService, serializer);
+            case COUNTER:
+                return new CounterBenchmark(storageService);
+            case LEADER_ELECTOR:
+                return new LeaderElectorBenchmark(leadershipService);
+            case TRANSACTION:
+                return new TransactionBenchmark(storageService, serializer);
+            case CONTENTION:
+                return new ContentionBenchmark(storageService, leadershipService, serializer, recorder);
+            default:
+                throw new IllegalArgumentException("Unknown primitive " + primitive);
+        }
+    }
+
+    private static final class ConsistentMapBenchmark implements PrimitiveBenchmark {
+
+        private final ConsistentMap<String, String> map;
+
+        private ConsistentMapBenchmark(StorageService storageService, Serializer serializer) {
+            map = storageService.<String, String>consistentMapBuilder()
+                    .withName(MAP_NAME)
+                    .withSerializer(serializer)
+                    .build();
+        }
+
+        @Override
+        public String readOperation() {
+            return "get";
+        }
+
+        @Override
+        public String writeOperation() {
+            return "put";
+        }
+
+        @Override
+        public void read(String key) {
+            map.get(key);
+        }
+
+        @Override
+        public void write(String key, String value) {
+            map.put(key, value);
+        }
+    }
+
+    private static final class EventuallyConsistentMapBenchmark implements PrimitiveBenchmark {
+
+        private final EventuallyConsistentMap<String, String> map;
+
+        // Eventually consistent maps only take Kryo serializers
+        private EventuallyConsistentMapBenchmark(StorageService storageService, String serializerName) {
+            map = storageService.<String, String>eventuallyConsistentMapBuilder()
+                    .withName(NAME_PREFIX + "ecmap")
+                    .withSerializer(StoreSerializers.kryoBuilder(serializerName))
+                    .withTimestampProvider((k, v) -> new WallClockTimestamp())
+                    .build();
+        }
+
+        @Override
+        public String readOperation() {
+            return "ecmap-get";
+        }
+
+        @Override
+        public String writeOperation() {
+            return "ecmap-put";
+        }
+
+        @Override
+        public void read(String key) {
+            map.get(key);
+        }
+
+        @Override
+        public void write(String key, String value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public void close() {
+            map.destroy();
+        }
+    }
+
+    private static final class SetBenchmark implements PrimitiveBenchmark {
+
+        private final DistributedSet<String> set;
+
+        private SetBenchmark(StorageService storageService, Serializer serializer) {
+            set = storageService.<String>setBuilder()
+                    .withName(NAME_PREFIX + "set")
+                    .withSerializer(serializer)
+                    .build();
+        }
+
+        @Override
+        public String readOperation() {
+            return "set-contains";
+        }
+
+        @Override
+        public String writeOperation() {
+            return "set-add";
+        }
+
+        @Override
+        public void read(String key) {
+            set.contains(key);
+        }
+
+        @Override
+        public void write(String key, String value) {
+            set.add(key);
+        }
+    }
+
+    private static final class CounterBenchmark implements PrimitiveBenchmark {
+
+        private final AtomicCounter counter;
+
+        private CounterBenchmark(StorageService storageService) {
+            counter = storageService.atomicCounterBuilder()
+                    .withName(NAME_PREFIX + "counter")
+                    .build()
+                    .asAtomicCounter();
+        }
+
+        @Override
+        public String readOperation() {
+            return "counter-get";
+        }
+
+        @Override
+        public String writeOperation() {
+            return "counter-increment";
+        }
+
+        @Override
+        public void read(String key) {
+            counter.get();
+        }
+
+        @Override
+        public void write(String key, String value) {
+            counter.incrementAndGet();
+        }
+    }
+
+    /**
+     * Runs for leadership of one topic per key; reads look up the topic leader.
+     */
+    private static final class LeaderElectorBenchmark implements PrimitiveBenchmark {
+
+        private final LeadershipService leadershipService;
+        private final Set<String> topics = Sets.newConcurrentHashSet();
+
+        private LeaderElectorBenchmark(LeadershipService leadershipService) {
+            this.leadershipService = leadershipService;
+        }
+
+        @Override
+        public String readOperation() {
+            return "election-leader";
+        }
+
+        @Override
+        public String writeOperation() {
+            return "election-run";
+        }
+
+        @Override
+        public void read(String key) {
+            leadershipService.getLeader(NAME_PREFIX + key);
+        }
+
+        @Override
+        public void write(String key, String value) {
+            String topic = NAME_PREFIX + key;
+            topics.add(topic);
+            leadershipService.runForLeadership(topic);
+        }
+
+        @Override
+        public void close() {
+            topics.forEach(leadershipService::withdraw);
+        }
+    }
+
+    /**
+     * Updates a run of consecutive keys of the test map in a single transaction.
+     */
+    private static final class TransactionBenchmark implements PrimitiveBenchmark {
+
+        private final StorageService storageService;
+        private final Serializer serializer;
+
+        private TransactionBenchmark(StorageService storageService, Serializer serializer) {
+            this.storageService = storageService;
+            this.serializer = serializer;
+        }
+
+        @Override
+        public String readOperation() {
+            return "tx-get";
+        }
+
+        @Override
+        public String writeOperation() {
+            return "tx-commit";
+        }
+
+        @Override
+        public void read(String key) {
+            TransactionContext context = storageService.transactionContextBuilder().build();
+            context.begin();
+            try {
+                context.<String, String>getTransactionalMap(MAP_NAME, serializer).get(key);
+            } finally {
+                context.abort();
+            }
+        }
+
+        @Override
+        public void write(String key, String value) {
+            TransactionContext context = storageService.transactionContextBuilder().build();
+            context.begin();
+            try {
+                TransactionalMap<String, String> map = context.getTransactionalMap(MAP_NAME, serializer);
+                for (int i = 0; i < TRANSACTION_SIZE; i++) {
+                    map.put(key + "." + i, value);
+                }
+            } catch (Exception e) {
+                context.abort();
+                throw e;
+            }
+            CommitStatus status = context.commit().join();
+            if (status != CommitStatus.SUCCESS) {
+                throw new IllegalStateException("Transaction commit " + status);
+            }
+        }
+    }
+
+    /**
+     * Writes keys with optimistic concurrency control: putIfAbsent, replace of
+     * a read version, and computeIfPresent, picked at random.
+     * <p>
+     * Besides the overall write latency, the latency of each conditional
+     * operation is reported under its own name, along with the number of
+     * attempts lost to a concurrent writer as its conflicts. Writes still
+     * conflicting after a bounded number of attempts fail.
+     * </p>
+     * <p>
+     * The map is shared by all nodes running the benchmark, which register
+     * as candidates of a leadership topic while they do; the last one to
+     * withdraw clears the map.
+     * </p>
+     */
+    private static final class ContentionBenchmark implements PrimitiveBenchmark {
+
+        private static final String PUT_IF_ABSENT = "putIfAbsent";
+        private static final String REPLACE = "replace";
+        private static final String COMPUTE_IF_PRESENT = "computeIfPresent";
+        private static final String MEMBERS = NAME_PREFIX + "contention-members";
+
+        private final ConsistentMap<String, String> map;
+        private final LeadershipService leadershipService;
+        private final OperationRecorder recorder;
+
+        private ContentionBenchmark(StorageService storageService, LeadershipService leadershipService,
+                                    Serializer serializer, OperationRecorder recorder) {
+            this.leadershipService = leadershipService;
+            this.recorder = recorder;
+            map = storageService.<String, String>consistentMapBuilder()
+                    .withName(NAME_PREFIX + "contention")
+                    .withSerializer(serializer)
+                    .build();
+            leadershipService.runForLeadership(MEMBERS);
+        }
+
+        @Override
+        public String readOperation() {
+            return "contended-get";
+        }
+
+        @Override
+        public String writeOperation() {
+            return "contended-write";
+        }
+
+        @Override
+        public void read(String key) {
+            map.get(key);
+        }
+
+        @Override
+        public void write(String key, String value) {
+            long start = System.nanoTime();
+            switch (ThreadLocalRandom.current().nextInt(3)) {
+                case 0:
+                    putIfAbsent(key, value, start);
+                    break;
+                case 1:
+                    replace(key, value, start);
+                    break;
+                default:
+                    computeIfPresent(key, value, start);
+                    break;
+            }
+        }
+
+        // Removes the key read first, so that the put only loses to concurrent
+        // writers and not to the keyspace filling up. Losing is the expected
+        // outcome here, hence no retry.
+        private void putIfAbsent(String key, String value, long start) {
+            Versioned<String> current = map.get(key);
+            if (current != null) {
+                map.remove(key, current.version());
+            }
+            if (map.putIfAbsent(key, value) == null) {
+                recorder.recordSuccess(PUT_IF_ABSENT, start);
+            } else {
+                recorder.recordConflict(PUT_IF_ABSENT);
+            }
+        }
+
+        private void replace(String key, String value, long start) {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                Versioned<String> current = map.get(key);
+                boolean replaced = current == null ? map.putIfAbsent(key, value) == null :
+                        map.replace(key, current.version(), value);
+                if (replaced) {
+                    recorder.recordSuccess(REPLACE, start);
+                    return;
+                }
+                recorder.recordConflict(REPLACE);
+            }
+            recorder.recordFailure(REPLACE);
+            throw new IllegalStateException("Replace gave up after " + MAX_ATTEMPTS + " attempts");
+        }
+
+        private void computeIfPresent(String key, String value, long start) {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                try {
+                    map.computeIfPresent(key, (k, v) -> value);
+                    recorder.recordSuccess(COMPUTE_IF_PRESENT, start);
+                    return;
+                } catch (ConsistentMapException.ConcurrentModification e) {
+                    recorder.recordConflict(COMPUTE_IF_PRESENT);
+                }
+            }
+            recorder.recordFailure(COMPUTE_IF_PRESENT);
+            throw new IllegalStateException("ComputeIfPresent gave up after " + MAX_ATTEMPTS + " attempts");
+        }
+
+        @Override
+        public void close() {
+            leadershipService.withdraw(MEMBERS);
+            if (leadershipService.getCandidates(MEMBERS).isEmpty()) {
+                map.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends the results of every reporting interval to a local file, so that
+ * long runs can be charted afterwards.
+ * <p>
+ * Lines are buffered and flushed once per interval. Existing files are
+ * appended to, and the header of the format is only written to new files.
+ * </p>
+ */
+public class ResultsFileWriter {
+
+    private final Path path;
+    private final ResultsFormat format;
+    private final BufferedWriter writer;
+
+    /**
+     * Opens the given file for appending.
+     *
+     * @param path file to append to
+     * @param format line format
+     * @throws IOException if the file cannot be opened
+     */
+    public ResultsFileWriter(Path path, ResultsFormat format) throws IOException {
+        this.path = path;
+        this.format = format;
+        boolean empty = !Files.exists(path) || Files.size(path) == 0;
+        writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                                         StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (empty && format.header() != null) {
+            writer.write(format.header());
+            writer.newLine();
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * Appends the results of an interval and flushes them to the file.
+     *
+     * @param report interval report
+     * @throws IOException if writing fails
+     */
+    public synchronized void write(PerfReport report) throws IOException {
+        for (String line : format.lines(report)) {
+            writer.write(line);
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Flushes and closes the file.
+     *
+     * @throws IOException if closing fails
+     */
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
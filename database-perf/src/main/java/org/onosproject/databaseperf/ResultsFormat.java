@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Line formats of exported benchmark results. Every line holds the results
+ * of one operation over one reporting period, with latencies in microseconds.
+ */
+public enum ResultsFormat {
+
+    /**
+     * Comma separated values, preceded by a header line.
+     */
+    CSV {
+        @Override
+        public String header() {
+            return "timestamp,node,operation,durationMillis,count,failures,conflicts,rate,p50,p90,p99,p99.9,max";
+        }
+
+        @Override
+        String line(PerfReport report, OperationReport op) {
+            return String.format(Locale.ROOT, "%d,%s,%s,%d,%d,%d,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f",
+                                 report.timestamp(), report.node(), op.operation(),
+                                 report.durationMillis(), op.count(), op.failures(), op.conflicts(),
+                                 op.rate(report.durationMillis()),
+                                 op.percentileMicros(50), op.percentileMicros(90),
+                                 op.percentileMicros(99), op.percentileMicros(99.9),
+                                 op.maxMicros());
+        }
+    },
+
+    /**
+     * One JSON object per line.
+     */
+    JSON {
+        @Override
+        public String header() {
+            return null;
+        }
+
+        @Override
+        String line(PerfReport report, OperationReport op) {
+            return String.format(Locale.ROOT,
+                                 "{\"timestamp\":%d,\"node\":\"%s\",\"operation\":\"%s\"," +
+                                         "\"durationMillis\":%d,\"count\":%d,\"failures\":%d," +
+                                         "\"conflicts\":%d,\"rate\":%d,\"p50\":%.1f,\"p90\":%.1f," +
+                                         "\"p99\":%.1f,\"p99.9\":%.1f,\"max\":%.1f}",
+                                 report.timestamp(), escape(report.node()), escape(op.operation()),
+                                 report.durationMillis(), op.count(), op.failures(), op.conflicts(),
+                                 op.rate(report.durationMillis()),
+                                 op.percentileMicros(50), op.percentileMicros(90),
+                                 op.percentileMicros(99), op.percentileMicros(99.9),
+                                 op.maxMicros());
+        }
+
+        private String escape(String s) {
+            return s.replace("\\", "\\\\").replace("\"", "\\\"");
+        }
+    };
+
+    /**
+     * Returns the format with the given case insensitive name.
+     *
+     * @param name format name, csv or json
+     * @return results format
+     * @throws IllegalArgumentException if the format is unknown
+     */
+    public static ResultsFormat of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the line to write at the beginning of a file.
+     *
+     * @return header line, or null if the format has none
+     */
+    public abstract String header();
+
+    abstract String line(PerfReport report, OperationReport op);
+
+    /**
+     * Formats the per-operation results of a report.
+     *
+     * @param report report to format
+     * @return one line per operation
+     */
+    public List<String> lines(PerfReport report) {
+        return report.operations().values().stream()
+                .map(op -> line(report, op))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onlab.util.KryoNamespace;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DefaultLink;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+import org.onosproject.net.intent.Key;
+import org.onosproject.net.provider.ProviderId;
+import org.onosproject.store.serializers.KryoNamespaces;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Measures the cost of encoding and decoding payloads the way the
+ * distributed stores do, without any store round trip.
+ * <p>
+ * Every payload is encoded both into a freshly allocated buffer, as
+ * {@link KryoNamespace#serialize(Object)} does on each call, and into a
+ * buffer reused across calls. The Kryo instances themselves are pooled by
+ * the namespace in both cases.
+ * </p>
+ */
+public class SerializerBenchmark {
+
+    // Large enough for any of the payloads below
+    private static final int BUFFER_SIZE = 4096;
+    private static final int DEVICE_SET_SIZE = 16;
+    private static final int VLAN_COUNT = 4;
+
+    private final KryoNamespace kryo = KryoNamespace.newBuilder()
+            .register(KryoNamespaces.API)
+            .build();
+
+    private final ThreadLocal<ByteBuffer> buffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+
+    private final List<Payload> payloads;
+
+    /**
+     * Creates a serializer benchmark.
+     *
+     * @param appId application identifier used for the intent key payload
+     */
+    public SerializerBenchmark(ApplicationId appId) {
+        ConnectPoint src = ConnectPoint.deviceConnectPoint("of:0000000000000001/1");
+        ConnectPoint dst = ConnectPoint.deviceConnectPoint("of:0000000000000002/2");
+        Link link = DefaultLink.builder()
+                .providerId(new ProviderId("of", "org.onosproject.databaseperf"))
+                .src(src)
+                .dst(dst)
+                .type(Link.Type.DIRECT)
+                .state(Link.State.ACTIVE)
+                .build();
+        // Same fields, written in the same order, as the SDX-L2 connection point serializer
+        List<Object> sdxL2ConnectionPoint = Lists.newArrayList(
+                "FRA-IX-1", src, MacAddress.valueOf("00:00:00:00:00:01"),
+                IntStream.range(0, VLAN_COUNT)
+                        .mapToObj(i -> VlanId.vlanId((short) (100 + i)))
+                        .collect(Collectors.toCollection(Lists::newArrayList)));
+        Set<DeviceId> devices = IntStream.range(0, DEVICE_SET_SIZE)
+                .mapToObj(i -> DeviceId.deviceId(String.format("of:%016x", i + 1)))
+                .collect(Collectors.toCollection(Sets::newHashSet));
+
+        payloads = ImmutableList.of(
+                new Payload("connectPoint", src),
+                new Payload("link", link),
+                new Payload("intentKey", Key.of("database-perf-intent", appId)),
+                new Payload("sdxL2ConnectionPoint", sdxL2ConnectionPoint),
+                new Payload("deviceSet", devices));
+    }
+
+    /**
+     * Encodes and decodes every payload once in each buffer mode, recording
+     * the latency of each step.
+     *
+     * @param recorder recorder of the operations
+     */
+    public void runOnce(OperationRecorder recorder) {
+        ByteBuffer buffer = buffers.get();
+        for (Payload payload : payloads) {
+            long start = System.nanoTime();
+            try {
+                kryo.serialize(payload.object);
+                recorder.recordSuccess(payload.encode, start);
+            } catch (Exception e) {
+                recorder.recordFailure(payload.encode);
+            }
+
+            start = System.nanoTime();
+            try {
+                kryo.deserialize(payload.bytes);
+                recorder.recordSuccess(payload.decode, start);
+            } catch (Exception e) {
+                recorder.recordFailure(payload.decode);
+            }
+
+            buffer.clear();
+            start = System.nanoTime();
+            try {
+                kryo.serialize(payload.object, buffer);
+                recorder.recordSuccess(payload.encodeReused, start);
+            } catch (Exception e) {
+                recorder.recordFailure(payload.encodeReused);
+                continue;
+            }
+
+            buffer.flip();
+            start = System.nanoTime();
+            try {
+                kryo.deserialize(buffer);
+                recorder.recordSuccess(payload.decodeReused, start);
+            } catch (Exception e) {
+                recorder.recordFailure(payload.decodeReused);
+            }
+        }
+    }
+
+    private final class Payload {
+        private final Object object;
+        private final byte[] bytes;
+        // Operation names are built once to keep string concatenation out of the loop
+        private final String encode;
+        private final String decode;
+        private final String encodeReused;
+        private final String decodeReused;
+
+        private Payload(String name, Object object) {
+            this.object = object;
+            this.bytes = kryo.serialize(object);
+            this.encode = name + "-encode";
+            this.decode = name + "-decode";
+            this.encodeReused = name + "-encode-reused";
+            this.decodeReused = name + "-decode-reused";
+        }
+    }
+}
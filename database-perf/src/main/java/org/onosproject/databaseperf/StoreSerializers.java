@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf;
+
+import java.nio.charset.StandardCharsets;
+
+import org.onlab.util.KryoNamespace;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.onosproject.store.service.Serializer;
+
+/**
+ * Serializers the store benchmarks can be run with, so that the share of
+ * store latency spent on serialization can be told apart from the share
+ * spent on replication.
+ */
+public final class StoreSerializers {
+
+    /**
+     * Kryo with only the built-in registrations, enough for string keys and values.
+     */
+    public static final String KRYO = "kryo";
+
+    /**
+     * Kryo with the ONOS API namespace, as used by the core stores.
+     */
+    public static final String KRYO_API = "kryoApi";
+
+    /**
+     * Plain UTF-8 encoding of strings, and of the booleans the distributed
+     * set stores as map values, a near zero cost baseline.
+     */
+    public static final String UTF8 = "utf8";
+
+    private StoreSerializers() {
+    }
+
+    /**
+     * Creates the named serializer.
+     *
+     * @param name serializer name
+     * @return serializer
+     * @throws IllegalArgumentException if the serializer is unknown
+     */
+    public static Serializer create(String name) {
+        if (UTF8.equals(name)) {
+            return new Utf8Serializer();
+        }
+        return using(kryoBuilder(name).build());
+    }
+
+    /**
+     * Returns the Kryo namespace builder of the named serializer, for the
+     * primitives only taking Kryo serializers.
+     *
+     * @param name serializer name
+     * @return Kryo namespace builder
+     * @throws IllegalArgumentException if the serializer is unknown or not Kryo based
+     */
+    public static KryoNamespace.Builder kryoBuilder(String name) {
+        switch (name) {
+            case KRYO:
+                return new KryoNamespace.Builder();
+            case KRYO_API:
+                return KryoNamespace.newBuilder().register(KryoNamespaces.API);
+            case UTF8:
+                throw new IllegalArgumentException("Serializer " + name + " is not Kryo based");
+            default:
+                throw new IllegalArgumentException("Unknown serializer " + name);
+        }
+    }
+
+    private static Serializer using(KryoNamespace kryo) {
+        return new Serializer() {
+            @Override
+            public <T> byte[] encode(T object) {
+                return kryo.serialize(object);
+            }
+
+            @Override
+            public <T> T decode(byte[] bytes) {
+                return kryo.deserialize(bytes);
+            }
+        };
+    }
+
+    // A leading type byte tells strings from booleans apart
+    private static final class Utf8Serializer implements Serializer {
+        private static final byte STRING = 0;
+        private static final byte FALSE = 1;
+        private static final byte TRUE = 2;
+
+        @Override
+        public <T> byte[] encode(T object) {
+            if (object instanceof Boolean) {
+                return new byte[] {(Boolean) object ? TRUE : FALSE};
+            }
+            if (!(object instanceof String)) {
+                throw new IllegalArgumentException("Serializer " + UTF8 + " cannot encode "
+                                                           + object.getClass().getName());
+            }
+            byte[] string = ((String) object).getBytes(StandardCharsets.UTF_8);
+            byte[] bytes = new byte[string.length + 1];
+            bytes[0] = STRING;
+            System.arraycopy(string, 0, bytes, 1, string.length);
+            return bytes;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T decode(byte[] bytes) {
+            switch (bytes[0]) {
+                case FALSE:
+                    return (T) Boolean.FALSE;
+                case TRUE:
+                    return (T) Boolean.TRUE;
+                default:
+                    return (T) new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+            }
+        }
+    }
+}
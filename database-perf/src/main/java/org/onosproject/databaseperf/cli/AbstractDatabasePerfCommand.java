@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf.cli;
+
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.databaseperf.PerfReport;
+
+import java.util.Date;
+
+/**
+ * Base for the database performance test commands printing results.
+ */
+public abstract class AbstractDatabasePerfCommand extends AbstractShellCommand {
+
+    private static final String HEADER_FORMAT = "%s node=%s, duration=%dms";
+    private static final String OPERATION_FORMAT =
+            "  %-18s count=%d, failed=%d, conflicts=%d, rate=%d/s, " +
+                    "p50=%.1fus, p90=%.1fus, p99=%.1fus, p99.9=%.1fus, max=%.1fus";
+
+    /**
+     * Prints the per-operation counters and latency percentiles of a report.
+     *
+     * @param report report to print
+     */
+    protected void printReport(PerfReport report) {
+        print(HEADER_FORMAT, new Date(report.timestamp()), report.node(), report.durationMillis());
+        report.operations().values().forEach(
+                op -> print(OPERATION_FORMAT, op.operation(), op.count(), op.failures(), op.conflicts(),
+                            op.rate(report.durationMillis()),
+                            op.percentileMicros(50), op.percentileMicros(90),
+                            op.percentileMicros(99), op.percentileMicros(99.9),
+                            op.maxMicros()));
+    }
+}
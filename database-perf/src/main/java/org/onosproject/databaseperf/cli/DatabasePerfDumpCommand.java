@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf.cli;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.apache.karaf.shell.commands.Argument;
+import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.commands.Option;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.databaseperf.DatabasePerfService;
+import org.onosproject.databaseperf.ResultsFormat;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Dumps every retained reporting interval of the current run.
+ */
+@Command(scope = "onos", name = "database-perf-dump",
+        description = "Dumps the interval results of the current database performance test run as CSV or JSON")
+public class DatabasePerfDumpCommand extends AbstractShellCommand {
+
+    @Option(name = "-f", aliases = "--format",
+            description = "Output format; csv or json",
+            required = false, multiValued = false)
+    private String format = "csv";
+
+    @Argument(index = 0, name = "file",
+            description = "File to write the results to instead of the console",
+            required = false, multiValued = false)
+    private String file = null;
+
+    @Override
+    protected void execute() {
+        ResultsFormat resultsFormat;
+        try {
+            resultsFormat = ResultsFormat.of(format);
+        } catch (IllegalArgumentException e) {
+            error("Unknown format %s", format);
+            return;
+        }
+
+        List<String> lines = Lists.newArrayList();
+        if (resultsFormat.header() != null) {
+            lines.add(resultsFormat.header());
+        }
+        get(DatabasePerfService.class).recentReports(Integer.MAX_VALUE)
+                .forEach(report -> lines.addAll(resultsFormat.lines(report)));
+
+        if (file == null) {
+            lines.forEach(line -> print("%s", line));
+            return;
+        }
+        try {
+            Files.write(Paths.get(file), lines, StandardCharsets.UTF_8);
+            print("Wrote %d lines to %s", lines.size(), file);
+        } catch (IOException e) {
+            error("Unable to write %s: %s", file, e.getMessage());
+        }
+    }
+}
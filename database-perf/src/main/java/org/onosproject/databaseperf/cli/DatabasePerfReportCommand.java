@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf.cli;
+
+import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.commands.Option;
+import org.onosproject.databaseperf.DatabasePerfService;
+
+/**
+ * Displays the latency percentiles of the database performance test.
+ */
+@Command(scope = "onos", name = "database-perf-report",
+        description = "Displays per-operation counts and latency percentiles of the database performance test")
+public class DatabasePerfReportCommand extends AbstractDatabasePerfCommand {
+
+    @Option(name = "-n", aliases = "--intervals",
+            description = "Number of most recent reporting intervals to display",
+            required = false, multiValued = false)
+    private int intervals = 1;
+
+    @Option(name = "-c", aliases = "--cumulative",
+            description = "Display the results accumulated since the run started",
+            required = false, multiValued = false)
+    private boolean cumulative = false;
+
+    @Override
+    protected void execute() {
+        DatabasePerfService service = get(DatabasePerfService.class);
+        if (cumulative) {
+            printReport(service.cumulativeReport());
+        } else {
+            service.recentReports(intervals).forEach(this::printReport);
+        }
+    }
+}
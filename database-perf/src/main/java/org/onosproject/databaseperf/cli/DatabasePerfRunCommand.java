@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.databaseperf.cli;
+
+import org.apache.karaf.shell.commands.Argument;
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.databaseperf.DatabasePerfService;
+import org.onosproject.databaseperf.PerfReport;
+
+import java.util.List;
+
+/**
+ * Starts or stops a database performance test run on all cluster nodes.
+ */
+@Command(scope = "onos", name = "database-perf-run",
+        description = "Starts or stops a database performance test run on all cluster nodes")
+public class DatabasePerfRunCommand extends AbstractDatabasePerfCommand {
+
+    private static final String START = "start";
+    private static final String STOP = "stop";
+    private static final String CLUSTER = "cluster";
+
+    @Argument(index = 0, name = "action",
+            description = "Action to perform, either start or stop",
+            required = true, multiValued = false)
+    private String action = null;
+
+    @Override
+    protected void execute() {
+        DatabasePerfService service = get(DatabasePerfService.class);
+        if (START.equals(action)) {
+            service.startClusterRun();
+            print("Cluster run started");
+        } else if (STOP.equals(action)) {
+            List<PerfReport> reports = service.stopClusterRun();
+            reports.forEach(this::printReport);
+            PerfReport merged = PerfReport.merge(CLUSTER, reports);
+            printReport(merged);
+            print("Nodes reporting: %d, total rate: %d/s", reports.size(),
+                  merged.durationMillis() > 0 ?
+                          Math.round(merged.totalCount() * 1000.0 / merged.durationMillis()) : 0);
+        } else {
+            print("Unknown action %s, expected %s or %s", action, START, STOP);
+        }
+    }
+}
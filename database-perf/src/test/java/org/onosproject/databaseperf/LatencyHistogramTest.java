@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.databaseperf;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for LatencyHistogram and HistogramSnapshot.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketBoundaries() {
+        for (long value : new long[]{0, 1, 127, 128, 255, 256, 1000, 65_535, 1_000_000, 123_456_789}) {
+            long highest = LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucketIndex(value));
+            assertTrue("bucket must contain " + value, highest >= value);
+            assertTrue("bucket too wide for " + value, highest - value <= value / 64);
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        HistogramSnapshot snapshot = histogram.snapshotAndReset();
+
+        assertEquals(1000, snapshot.totalCount());
+        assertEquals(1000, snapshot.maxValue());
+        assertWithinPercent(500, snapshot.valueAtPercentile(50));
+        assertWithinPercent(990, snapshot.valueAtPercentile(99));
+        assertEquals(1000, snapshot.valueAtPercentile(100));
+    }
+
+    @Test
+    public void resetAndMerge() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+        HistogramSnapshot first = histogram.snapshotAndReset();
+        histogram.record(20_000);
+        HistogramSnapshot second = histogram.snapshotAndReset();
+
+        assertEquals(1, second.totalCount());
+        assertEquals(20_000, second.maxValue());
+        assertEquals(0, histogram.snapshotAndReset().totalCount());
+
+        HistogramSnapshot merged = first.merge(second);
+        assertEquals(2, merged.totalCount());
+        assertEquals(10, merged.valueAtPercentile(50));
+        assertEquals(20_000, merged.maxValue());
+    }
+
+    private static void assertWithinPercent(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual,
+                   Math.abs(expected - actual) <= expected / 100 + 1);
+    }
+}
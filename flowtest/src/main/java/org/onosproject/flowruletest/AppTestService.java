@@ -1,8 +1,46 @@
 package org.onosproject.flowruletest;
 
+import java.util.Optional;
+
 /**
  * Applications test service.
  */
 public interface AppTestService {
 
+    /**
+     * Starts a flow test run, stopping and cleaning up any test run
+     * started before.
+     *
+     * @param test name of the test to run; null for the configured test
+     * @throws IllegalArgumentException if the test is not known
+     */
+    void startTest(String test);
+
+    /**
+     * Stops the current flow test run, if any, and removes its rules once
+     * the run has terminated. The partial result of the stopped run becomes
+     * the last result.
+     */
+    void stopTest();
+
+    /**
+     * Returns the name of the most recently started test.
+     *
+     * @return test name, or empty if no test was started
+     */
+    Optional<String> currentTest();
+
+    /**
+     * Indicates whether a flow test run is in progress.
+     *
+     * @return true if a test is running
+     */
+    boolean isRunning();
+
+    /**
+     * Returns the result of the most recently completed or stopped test run.
+     *
+     * @return test result, or empty if no run completed yet
+     */
+    Optional<FlowTestResult> lastResult();
 }
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.flowruletest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Outcome of a flow programming test run.
+ */
+public final class FlowTestResult {
+
+    private final String test;
+    private final long startTime;
+    private final long elapsedMillis;
+    private final int devices;
+    private final long rulesSubmitted;
+    private final long rulesConfirmed;
+    private final long failures;
+    private final SortedMap<String, LatencyStats> latencies;
+    private final List<FlowTestResult> rounds;
+
+    private FlowTestResult(Builder builder) {
+        this.test = builder.test;
+        this.startTime = builder.startTime;
+        this.elapsedMillis = builder.elapsedMillis;
+        this.devices = builder.devices;
+        this.rulesSubmitted = builder.rulesSubmitted;
+        this.rulesConfirmed = builder.rulesConfirmed;
+        this.failures = builder.failures;
+        this.latencies = builder.latencies.build();
+        this.rounds = builder.rounds.build();
+    }
+
+    /**
+     * Returns the name of the test that was run.
+     *
+     * @return test name
+     */
+    public String test() {
+        return test;
+    }
+
+    /**
+     * Returns the time the run started.
+     *
+     * @return start time in milliseconds since epoch
+     */
+    public long startTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the time from the first submission until the last rule was
+     * confirmed, or until the run ended if some rules never were.
+     *
+     * @return elapsed time in milliseconds
+     */
+    public long elapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns the number of devices programmed.
+     *
+     * @return device count
+     */
+    public int devices() {
+        return devices;
+    }
+
+    /**
+     * Returns the number of rule operations submitted.
+     *
+     * @return submitted rule operations
+     */
+    public long rulesSubmitted() {
+        return rulesSubmitted;
+    }
+
+    /**
+     * Returns the number of rule operations confirmed by flow rule events.
+     *
+     * @return confirmed rule operations
+     */
+    public long rulesConfirmed() {
+        return rulesConfirmed;
+    }
+
+    /**
+     * Returns the number of failed rule operations or batches.
+     *
+     * @return failure count
+     */
+    public long failures() {
+        return failures;
+    }
+
+    /**
+     * Returns the confirmed rule operations per second.
+     *
+     * @return rule operation rate
+     */
+    public long rate() {
+        return elapsedMillis > 0 ? Math.round(rulesConfirmed * 1000.0 / elapsedMillis) : 0;
+    }
+
+    /**
+     * Returns the latency summaries of the run keyed by what they measure,
+     * e.g. batch completion or rule confirmation on a given device.
+     *
+     * @return latency summaries
+     */
+    public SortedMap<String, LatencyStats> latencies() {
+        return latencies;
+    }
+
+    /**
+     * Returns the results of the individual rounds of a test made of
+     * several rounds, e.g. one per device count.
+     *
+     * @return round results; empty for single round tests
+     */
+    public List<FlowTestResult> rounds() {
+        return rounds;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("test", test)
+                .add("startTime", startTime)
+                .add("elapsedMillis", elapsedMillis)
+                .add("devices", devices)
+                .add("rulesSubmitted", rulesSubmitted)
+                .add("rulesConfirmed", rulesConfirmed)
+                .add("failures", failures)
+                .add("rate", rate())
+                .add("latencies", latencies)
+                .add("rounds", rounds)
+                .toString();
+    }
+
+    /**
+     * Returns a new builder.
+     *
+     * @param test name of the test
+     * @return builder
+     */
+    public static Builder builder(String test) {
+        return new Builder(test);
+    }
+
+    /**
+     * Builder of flow test results.
+     */
+    public static final class Builder {
+
+        private final String test;
+        private long startTime;
+        private long elapsedMillis;
+        private int devices;
+        private long rulesSubmitted;
+        private long rulesConfirmed;
+        private long failures;
+        private final ImmutableSortedMap.Builder<String, LatencyStats> latencies =
+                ImmutableSortedMap.naturalOrder();
+        private final ImmutableList.Builder<FlowTestResult> rounds = ImmutableList.builder();
+
+        private Builder(String test) {
+            this.test = test;
+        }
+
+        public Builder startTime(long startTime) {
+            this.startTime = startTime;
+            return this;
+        }
+
+        public Builder elapsedMillis(long elapsedMillis) {
+            this.elapsedMillis = elapsedMillis;
+            return this;
+        }
+
+        public Builder devices(int devices) {
+            this.devices = devices;
+            return this;
+        }
+
+        public Builder rulesSubmitted(long rulesSubmitted) {
+            this.rulesSubmitted = rulesSubmitted;
+            return this;
+        }
+
+        public Builder rulesConfirmed(long rulesConfirmed) {
+            this.rulesConfirmed = rulesConfirmed;
+            return this;
+        }
+
+        public Builder failures(long failures) {
+            this.failures = failures;
+            return this;
+        }
+
+        public Builder latency(String name, LatencyStats stats) {
+            latencies.put(name, stats);
+            return this;
+        }
+
+        public Builder latencies(Map<String, LatencyStats> stats) {
+            latencies.putAll(stats);
+            return this;
+        }
+
+        public Builder round(FlowTestResult round) {
+            rounds.add(round);
+            return this;
+        }
+
+        /**
+         * Builds the result.
+         *
+         * @return flow test result
+         */
+        public FlowTestResult build() {
+            return new FlowTestResult(this);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.flowruletest;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Summary of a set of latency samples. Values are in microseconds.
+ */
+public final class LatencyStats {
+
+    private static final LatencyStats EMPTY = new LatencyStats(0, 0, 0, 0, 0, 0, 0);
+
+    private final int count;
+    private final long min;
+    private final long mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long max;
+
+    private LatencyStats(int count, long min, long mean, long p50, long p90, long p99, long max) {
+        this.count = count;
+        this.min = min;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    /**
+     * Summarizes the given samples.
+     *
+     * @param nanos latency samples in nanoseconds; sorted in place
+     * @return latency summary
+     */
+    public static LatencyStats of(long[] nanos) {
+        if (nanos.length == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(nanos);
+        long sum = 0;
+        for (long value : nanos) {
+            sum += value;
+        }
+        return new LatencyStats(nanos.length, micros(nanos[0]), micros(sum / nanos.length),
+                                micros(percentile(nanos, 50)), micros(percentile(nanos, 90)),
+                                micros(percentile(nanos, 99)), micros(nanos[nanos.length - 1]));
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long min() {
+        return min;
+    }
+
+    public long mean() {
+        return mean;
+    }
+
+    public long p50() {
+        return p50;
+    }
+
+    public long p90() {
+        return p90;
+    }
+
+    public long p99() {
+        return p99;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("count", count)
+                .add("min", min)
+                .add("mean", mean)
+                .add("p50", p50)
+                .add("p90", p90)
+                .add("p99", p99)
+                .add("max", max)
+                .toString();
+    }
+}
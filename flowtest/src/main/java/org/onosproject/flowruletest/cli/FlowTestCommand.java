@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.flowruletest.cli;
+
+import java.util.Date;
+import java.util.Optional;
+
+import org.apache.karaf.shell.commands.Argument;
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.flowruletest.AppTestService;
+import org.onosproject.flowruletest.FlowTestResult;
+
+/**
+ * Starts, stops or shows the status of a flow test run.
+ */
+@Command(scope = "onos", name = "flowtest",
+        description = "Starts, stops or shows the status of a flow test run")
+public class FlowTestCommand extends AbstractShellCommand {
+
+    private static final String START = "start";
+    private static final String STOP = "stop";
+    private static final String STATUS = "status";
+
+    private static final String RESULT_FORMAT =
+            "%s started=%s, elapsed=%dms, devices=%d, submitted=%d, confirmed=%d, failed=%d, rate=%d/s";
+    private static final String ROUND_FORMAT =
+            "  round devices=%d, elapsed=%dms, confirmed=%d, failed=%d, rate=%d/s";
+    private static final String LATENCY_FORMAT =
+            "  %-28s count=%d, min=%dus, mean=%dus, p50=%dus, p90=%dus, p99=%dus, max=%dus";
+
+    @Argument(index = 0, name = "action",
+            description = "Action to perform, either start, stop or status",
+            required = false, multiValued = false)
+    private String action = STATUS;
+
+    @Argument(index = 1, name = "test",
+            description = "Test to start, either file, bulk, churn or parallel; the configured test if omitted",
+            required = false, multiValued = false)
+    private String test = null;
+
+    @Override
+    protected void execute() {
+        AppTestService service = get(AppTestService.class);
+        if (START.equals(action)) {
+            try {
+                service.startTest(test);
+                print("Flow test %s started", service.currentTest().orElse(""));
+            } catch (IllegalArgumentException e) {
+                print("%s", e.getMessage());
+            }
+        } else if (STOP.equals(action)) {
+            service.stopTest();
+            print("Flow test stopped");
+            service.lastResult().ifPresent(this::printResult);
+        } else if (STATUS.equals(action)) {
+            Optional<String> current = service.currentTest();
+            print("test=%s, running=%s", current.orElse("none"), service.isRunning());
+            service.lastResult().ifPresent(this::printResult);
+        } else {
+            print("Unknown action %s, expected %s, %s or %s", action, START, STOP, STATUS);
+        }
+    }
+
+    private void printResult(FlowTestResult result) {
+        print(RESULT_FORMAT, result.test(), new Date(result.startTime()), result.elapsedMillis(),
+              result.devices(), result.rulesSubmitted(), result.rulesConfirmed(),
+              result.failures(), result.rate());
+        result.rounds().forEach(round -> print(ROUND_FORMAT, round.devices(), round.elapsedMillis(),
+                                               round.rulesConfirmed(), round.failures(), round.rate()));
+        result.latencies().forEach(
+                (name, stats) -> print(LATENCY_FORMAT, name, stats.count(), stats.min(), stats.mean(),
+                                       stats.p50(), stats.p90(), stats.p99(), stats.max()));
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.flowruletest.dispatch;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip4Prefix;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.flowruletest.FlowTestResult;
+import org.onosproject.flowruletest.LatencyStats;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.device.DeviceService;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleEvent;
+import org.onosproject.net.flow.FlowRuleListener;
+import org.onosproject.net.flow.FlowRuleOperations;
+import org.onosproject.net.flow.FlowRuleOperationsContext;
+import org.onosproject.net.flow.FlowRuleService;
+import org.onosproject.net.flow.TrafficTreatment;
+import org.slf4j.Logger;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Flow programming throughput test: installs a number of rules on every
+ * available device in batches and measures the time until all of them are
+ * reported as added, both overall and per device.
+ * <p>
+ * Rules are interleaved across devices so that all devices are programmed
+ * at once. Note that a rule is only reported as added once the device flow
+ * statistics confirm it, so the flow statistics polling interval bounds the
+ * resolution of the measurement.
+ * </p>
+ */
+public class BulkFlowRuleTest {
+
+    /**
+     * Name of the test in results.
+     */
+    public static final String NAME = "bulk";
+
+    private static final int PRIORITY = 10;
+    // Rule i of every device matches this address plus i
+    private static final int BASE_ADDRESS = Ip4Address.valueOf("10.0.0.0").toInt();
+
+    private final Logger log = getLogger(getClass());
+
+    private final FlowRuleService flowRuleService;
+    private final DeviceService deviceService;
+    private final ApplicationId appId;
+    private final int rulesPerDevice;
+    private final int batchSize;
+
+    // Pending rules mapped to the index of the batch that submitted them
+    private final ConcurrentMap<FlowId, Integer> pending = Maps.newConcurrentMap();
+    private final InternalFlowRuleListener listener = new InternalFlowRuleListener();
+    private final AtomicLong failures = new AtomicLong();
+    private CountDownLatch remaining;
+    private AtomicLongArray batchStarts;
+    private Map<DeviceId, Queue<Long>> addLatencies;
+    private volatile long lastAddedNanos;
+
+    /**
+     * Creates a bulk flow programming test.
+     *
+     * @param flowRuleService flow rule service
+     * @param deviceService device service
+     * @param appId application the rules are installed for
+     * @param rulesPerDevice number of rules to install on every device
+     * @param batchSize number of rules submitted per flow rule operations batch
+     */
+    public BulkFlowRuleTest(FlowRuleService flowRuleService, DeviceService deviceService,
+                            ApplicationId appId, int rulesPerDevice, int batchSize) {
+        this.flowRuleService = flowRuleService;
+        this.deviceService = deviceService;
+        this.appId = appId;
+        this.rulesPerDevice = rulesPerDevice;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Builds the test rule with the given index for a device.
+     *
+     * @param deviceId device to build the rule for
+     * @param appId application the rule belongs to
+     * @param index rule index, selecting the matched destination address
+     * @return flow rule
+     */
+    public static FlowRule buildRule(DeviceId deviceId, ApplicationId appId, int index) {
+        return buildRule(deviceId, appId, index, DefaultTrafficTreatment.emptyTreatment());
+    }
+
+    /**
+     * Builds the test rule with the given index for a device, applying the
+     * given treatment.
+     *
+     * @param deviceId device to build the rule for
+     * @param appId application the rule belongs to
+     * @param index rule index, selecting the matched destination address
+     * @param treatment treatment of the rule
+     * @return flow rule
+     */
+    public static FlowRule buildRule(DeviceId deviceId, ApplicationId appId, int index,
+                                     TrafficTreatment treatment) {
+        return DefaultFlowRule.builder()
+                .forDevice(deviceId)
+                .withSelector(DefaultTrafficSelector.builder()
+                                      .matchEthType(Ethernet.TYPE_IPV4)
+                                      .matchIPDst(Ip4Prefix.valueOf(BASE_ADDRESS + index,
+                                                                    Ip4Prefix.MAX_MASK_LENGTH))
+                                      .build())
+                .withTreatment(treatment)
+                .withPriority(PRIORITY)
+                .fromApp(appId)
+                .makePermanent()
+                .build();
+    }
+
+    /**
+     * Installs the rules and waits until all of them are added or the
+     * timeout expires. When interrupted, stops submitting batches, waits for
+     * the submitted ones to complete and returns the partial result with the
+     * interrupt status set.
+     *
+     * @param timeoutMillis maximum time to wait for the rules to be added
+     * @return test result
+     */
+    public FlowTestResult run(long timeoutMillis) {
+        List<DeviceId> devices = Lists.newArrayList();
+        deviceService.getAvailableDevices().forEach(device -> devices.add(device.id()));
+
+        List<FlowRule> rules = Lists.newArrayListWithCapacity(devices.size() * rulesPerDevice);
+        for (int i = 0; i < rulesPerDevice; i++) {
+            for (DeviceId deviceId : devices) {
+                rules.add(buildRule(deviceId, appId, i));
+            }
+        }
+        List<List<FlowRule>> batches = Lists.partition(rules, batchSize);
+        for (int b = 0; b < batches.size(); b++) {
+            int batch = b;
+            batches.get(b).forEach(rule -> pending.put(rule.id(), batch));
+        }
+        remaining = new CountDownLatch(pending.size());
+        batchStarts = new AtomicLongArray(batches.size());
+        addLatencies = Maps.newHashMap();
+        devices.forEach(deviceId -> addLatencies.put(deviceId, new ConcurrentLinkedQueue<>()));
+        AtomicLongArray batchLatencies = new AtomicLongArray(batches.size());
+
+        log.info("Installing {} rules on {} devices in {} batches",
+                 rules.size(), devices.size(), batches.size());
+        flowRuleService.addListener(listener);
+        long startTime = System.currentTimeMillis();
+        long start = System.nanoTime();
+        lastAddedNanos = start;
+        PendingBatches pendingBatches = new PendingBatches();
+        int submittedRules = 0;
+        try {
+            for (int b = 0; b < batches.size(); b++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                int batch = b;
+                long batchStart = System.nanoTime();
+                batchStarts.set(b, batchStart);
+                FlowRuleOperations.Builder ops = FlowRuleOperations.builder();
+                batches.get(b).forEach(ops::add);
+                pendingBatches.acquire();
+                flowRuleService.apply(ops.build(new FlowRuleOperationsContext() {
+                    @Override
+                    public void onSuccess(FlowRuleOperations ops) {
+                        batchLatencies.set(batch, System.nanoTime() - batchStart);
+                        pendingBatches.release();
+                    }
+
+                    @Override
+                    public void onError(FlowRuleOperations ops) {
+                        batchLatencies.set(batch, System.nanoTime() - batchStart);
+                        failures.incrementAndGet();
+                        pendingBatches.release();
+                    }
+                }));
+                submittedRules += batches.get(b).size();
+            }
+            if (!remaining.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("{} rules not added after {} ms", remaining.getCount(), timeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Bulk test stopped after submitting {} rules", submittedRules);
+            if (!pendingBatches.awaitCompletion(PendingBatches.STOP_TIMEOUT)) {
+                log.warn("{} flow rule batches still pending after {} ms",
+                         pendingBatches.pending(), PendingBatches.STOP_TIMEOUT);
+            }
+        } finally {
+            flowRuleService.removeListener(listener);
+        }
+        long end = remaining.getCount() == 0 ? lastAddedNanos : System.nanoTime();
+
+        // Batches still outstanding at the end are left out
+        long[] latencies = IntStream.range(0, batches.size())
+                .mapToLong(batchLatencies::get)
+                .filter(latency -> latency > 0)
+                .toArray();
+
+        FlowTestResult.Builder result = FlowTestResult.builder(NAME)
+                .startTime(startTime)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(end - start))
+                .devices(devices.size())
+                .rulesSubmitted(submittedRules)
+                .rulesConfirmed(rules.size() - remaining.getCount())
+                .failures(failures.get())
+                .latency("batch", LatencyStats.of(latencies));
+        addLatencies.forEach((deviceId, samples) -> result.latency(
+                "add:" + deviceId, LatencyStats.of(samples.stream().mapToLong(Long::longValue).toArray())));
+        FlowTestResult built = result.build();
+        log.info("{}", built);
+        return built;
+    }
+
+    /**
+     * Removes all rules installed by the test.
+     */
+    public void removeFlowRules() {
+        flowRuleService.removeFlowRulesById(appId);
+    }
+
+    private class InternalFlowRuleListener implements FlowRuleListener {
+        @Override
+        public void event(FlowRuleEvent event) {
+            if (event.type() != FlowRuleEvent.Type.RULE_ADDED) {
+                return;
+            }
+            Integer batch = pending.remove(event.subject().id());
+            if (batch != null) {
+                lastAddedNanos = System.nanoTime();
+                addLatencies.get(event.subject().deviceId())
+                        .add(lastAddedNanos - batchStarts.get(batch));
+                remaining.countDown();
+            }
+        }
+    }
+}
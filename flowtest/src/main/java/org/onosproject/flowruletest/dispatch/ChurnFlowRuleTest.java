@@ -0,0 +1,284 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.flowruletest.dispatch;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.onosproject.core.ApplicationId;
+import org.onosproject.flowruletest.FlowTestResult;
+import org.onosproject.flowruletest.LatencyStats;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.device.DeviceService;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleEvent;
+import org.onosproject.net.flow.FlowRuleListener;
+import org.onosproject.net.flow.FlowRuleOperations;
+import org.onosproject.net.flow.FlowRuleOperationsContext;
+import org.onosproject.net.flow.FlowRuleService;
+import org.onosproject.net.flow.TrafficTreatment;
+import org.slf4j.Logger;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Sustained flow rule churn test: keeps adding, modifying and removing
+ * rules on every available device at a target operation rate and measures
+ * the time from submitting an add until the rule is reported as added, and
+ * from submitting a remove until it is reported as removed, per device.
+ * <p>
+ * Each device has a fixed set of rule slots. A slot whose rule is not
+ * installed gets an add; a slot whose rule is installed gets a modify or a
+ * remove. Slots with an add or remove in flight are left alone until the
+ * corresponding flow rule event arrives, or the operation fails.
+ * </p>
+ */
+public class ChurnFlowRuleTest {
+
+    /**
+     * Name of the test in results.
+     */
+    public static final String NAME = "churn";
+
+    private static final int EMPTY = 0;
+    private static final int ADDING = 1;
+    private static final int INSTALLED = 2;
+    private static final int REMOVING = 3;
+
+    // Share of operations on installed rules that are modifies rather than removes
+    private static final int MODIFY_PERCENTAGE = 50;
+    private static final long TICK = 10; //ms
+
+    private static final TrafficTreatment MODIFIED_TREATMENT =
+            DefaultTrafficTreatment.builder().punt().build();
+
+    private final Logger log = getLogger(getClass());
+
+    private final FlowRuleService flowRuleService;
+    private final DeviceService deviceService;
+    private final ApplicationId appId;
+    private final int rulesPerDevice;
+    private final int rate;
+    private final int batchSize;
+
+    private final Random random = new Random();
+    private final InternalFlowRuleListener listener = new InternalFlowRuleListener();
+    private final ConcurrentMap<FlowId, Integer> slots = Maps.newConcurrentMap();
+    private final AtomicLong confirmed = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final PendingBatches pendingBatches = new PendingBatches();
+    private List<DeviceId> devices;
+    private AtomicIntegerArray states;
+    private AtomicLongArray submitted;
+    private boolean[] modified;
+    private Map<DeviceId, Queue<Long>> addLatencies;
+    private Map<DeviceId, Queue<Long>> removeLatencies;
+
+    /**
+     * Creates a flow rule churn test.
+     *
+     * @param flowRuleService flow rule service
+     * @param deviceService device service
+     * @param appId application the rules are installed for
+     * @param rulesPerDevice number of rule slots churned on every device
+     * @param rate target number of rule operations per second
+     * @param batchSize maximum number of rule operations submitted per batch
+     */
+    public ChurnFlowRuleTest(FlowRuleService flowRuleService, DeviceService deviceService,
+                             ApplicationId appId, int rulesPerDevice, int rate, int batchSize) {
+        this.flowRuleService = flowRuleService;
+        this.deviceService = deviceService;
+        this.appId = appId;
+        this.rulesPerDevice = rulesPerDevice;
+        this.rate = rate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Churns rules at the target rate for the given duration. When
+     * interrupted, stops churning and returns the partial result with the
+     * interrupt status set.
+     *
+     * @param durationMillis time to keep churning
+     * @return test result
+     */
+    public FlowTestResult run(long durationMillis) {
+        devices = Lists.newArrayList();
+        deviceService.getAvailableDevices().forEach(device -> devices.add(device.id()));
+        int slotCount = devices.size() * rulesPerDevice;
+        states = new AtomicIntegerArray(slotCount);
+        submitted = new AtomicLongArray(slotCount);
+        modified = new boolean[slotCount];
+        addLatencies = Maps.newHashMap();
+        removeLatencies = Maps.newHashMap();
+        devices.forEach(deviceId -> {
+            addLatencies.put(deviceId, new ConcurrentLinkedQueue<>());
+            removeLatencies.put(deviceId, new ConcurrentLinkedQueue<>());
+        });
+        // Both variants of a rule map to its slot in case the treatment is part of the id
+        for (int slot = 0; slot < slotCount; slot++) {
+            slots.put(rule(slot, false).id(), slot);
+            slots.put(rule(slot, true).id(), slot);
+        }
+
+        log.info("Churning {} rules on {} devices at {} operations/s",
+                 slotCount, devices.size(), rate);
+        long operations = 0;
+        flowRuleService.addListener(listener);
+        long startTime = System.currentTimeMillis();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        try {
+            long now = start;
+            while (slotCount > 0 && now < end) {
+                long due = (now - start) * rate / TimeUnit.SECONDS.toNanos(1) - operations;
+                if (due > 0) {
+                    operations += churn((int) Math.min(due, batchSize), slotCount);
+                }
+                TimeUnit.MILLISECONDS.sleep(TICK);
+                now = System.nanoTime();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Churn test stopped after {} operations", operations);
+        } finally {
+            // No batch may add rules once the rules of the test are removed
+            if (!pendingBatches.awaitCompletion(PendingBatches.STOP_TIMEOUT)) {
+                log.warn("{} flow rule batches still pending after {} ms",
+                         pendingBatches.pending(), PendingBatches.STOP_TIMEOUT);
+            }
+            flowRuleService.removeListener(listener);
+        }
+
+        FlowTestResult.Builder result = FlowTestResult.builder(NAME)
+                .startTime(startTime)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .devices(devices.size())
+                .rulesSubmitted(operations)
+                .rulesConfirmed(confirmed.get())
+                .failures(failures.get());
+        addLatencies.forEach((deviceId, samples) -> result.latency("add:" + deviceId, stats(samples)));
+        removeLatencies.forEach((deviceId, samples) -> result.latency("remove:" + deviceId, stats(samples)));
+        FlowTestResult built = result.build();
+        log.info("{}", built);
+        return built;
+    }
+
+    /**
+     * Removes all rules installed by the test. Meant to be called once
+     * {@link #run(long)} has returned, when no batch is in flight any more.
+     */
+    public void removeFlowRules() {
+        flowRuleService.removeFlowRulesById(appId);
+    }
+
+    // Submits up to the given number of operations on randomly picked slots
+    private int churn(int count, int slotCount) {
+        FlowRuleOperations.Builder ops = FlowRuleOperations.builder();
+        int added = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = random.nextInt(slotCount);
+            long now = System.nanoTime();
+            if (states.compareAndSet(slot, EMPTY, ADDING)) {
+                submitted.set(slot, now);
+                ops.add(rule(slot, modified[slot]));
+            } else if (states.get(slot) != INSTALLED) {
+                continue;
+            } else if (random.nextInt(100) < MODIFY_PERCENTAGE) {
+                modified[slot] = !modified[slot];
+                ops.modify(rule(slot, modified[slot]));
+            } else if (states.compareAndSet(slot, INSTALLED, REMOVING)) {
+                submitted.set(slot, now);
+                ops.remove(rule(slot, modified[slot]));
+            } else {
+                continue;
+            }
+            added++;
+        }
+        if (added > 0) {
+            pendingBatches.submitted();
+            flowRuleService.apply(ops.build(new FlowRuleOperationsContext() {
+                @Override
+                public void onSuccess(FlowRuleOperations ops) {
+                    pendingBatches.release();
+                }
+
+                @Override
+                public void onError(FlowRuleOperations failed) {
+                    failed.stages().forEach(stage -> stage.forEach(op -> revert(op.rule())));
+                    pendingBatches.release();
+                }
+            }));
+        }
+        return added;
+    }
+
+    // Frees the slot of a failed operation so that it keeps being churned.
+    // The slot state rather than the operation type tells adds from removes,
+    // as failed operations are not guaranteed to be reported with their type.
+    private void revert(FlowRule rule) {
+        failures.incrementAndGet();
+        Integer slot = slots.get(rule.id());
+        if (slot != null && !states.compareAndSet(slot, ADDING, EMPTY)) {
+            states.compareAndSet(slot, REMOVING, INSTALLED);
+        }
+    }
+
+    private FlowRule rule(int slot, boolean modified) {
+        DeviceId deviceId = devices.get(slot % devices.size());
+        int index = slot / devices.size();
+        return modified
+                ? BulkFlowRuleTest.buildRule(deviceId, appId, index, MODIFIED_TREATMENT)
+                : BulkFlowRuleTest.buildRule(deviceId, appId, index);
+    }
+
+    private static LatencyStats stats(Queue<Long> samples) {
+        return LatencyStats.of(samples.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    private class InternalFlowRuleListener implements FlowRuleListener {
+        @Override
+        public void event(FlowRuleEvent event) {
+            Integer slot = slots.get(event.subject().id());
+            if (slot == null) {
+                return;
+            }
+            DeviceId deviceId = event.subject().deviceId();
+            if (event.type() == FlowRuleEvent.Type.RULE_ADDED
+                    && states.compareAndSet(slot, ADDING, INSTALLED)) {
+                addLatencies.get(deviceId).add(System.nanoTime() - submitted.get(slot));
+                confirmed.incrementAndGet();
+            } else if (event.type() == FlowRuleEvent.Type.RULE_REMOVED
+                    && states.compareAndSet(slot, REMOVING, EMPTY)) {
+                removeLatencies.get(deviceId).add(System.nanoTime() - submitted.get(slot));
+                confirmed.incrementAndGet();
+            }
+        }
+    }
+}
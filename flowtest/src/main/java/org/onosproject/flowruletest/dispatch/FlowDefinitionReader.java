@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.flowruletest.dispatch;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads flow definitions one at a time from a file, so that files of any
+ * size can be replayed without holding them in memory.
+ * <p>
+ * Two formats are supported, told apart by the first non-blank character:
+ * </p>
+ * <ul>
+ * <li>one definition per line, holding the flow payload optionally
+ * preceded by a device identifier and white space; blank lines and lines
+ * starting with # are skipped</li>
+ * <li>JSON objects with a "payload" and an optional "deviceId" field,
+ * either enclosed in a top-level array or one after another</li>
+ * </ul>
+ */
+public abstract class FlowDefinitionReader implements Closeable {
+
+    /**
+     * Flow definition read from a file.
+     */
+    public static final class FlowDefinition {
+
+        private final String deviceId;
+        private final String payload;
+
+        FlowDefinition(String deviceId, String payload) {
+            this.deviceId = deviceId;
+            this.payload = payload;
+        }
+
+        /**
+         * Returns the identifier of the device the flow is meant for.
+         *
+         * @return device identifier, or null if not given
+         */
+        public String deviceId() {
+            return deviceId;
+        }
+
+        /**
+         * Returns the flow payload.
+         *
+         * @return payload
+         */
+        public String payload() {
+            return payload;
+        }
+    }
+
+    /**
+     * Opens a flow definition file.
+     *
+     * @param path file to read
+     * @return reader of the flow definitions in the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static FlowDefinitionReader open(Path path) throws IOException {
+        PushbackReader reader = new PushbackReader(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+        try {
+            int c;
+            do {
+                c = reader.read();
+            } while (c != -1 && Character.isWhitespace(c));
+            if (c != -1) {
+                reader.unread(c);
+            }
+            if (c == '[' || c == '{') {
+                return new JsonReader(reader);
+            }
+            return new LineReader(new BufferedReader(reader));
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next flow definition.
+     *
+     * @return flow definition, or null at the end of the file
+     * @throws IOException if reading fails or the file is malformed
+     */
+    public abstract FlowDefinition next() throws IOException;
+
+    private static final class LineReader extends FlowDefinitionReader {
+
+        private final BufferedReader reader;
+
+        private LineReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public FlowDefinition next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+", 2);
+                return fields.length == 2 ? new FlowDefinition(fields[0], fields[1]) :
+                        new FlowDefinition(null, fields[0]);
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class JsonReader extends FlowDefinitionReader {
+
+        private final JsonParser parser;
+        private boolean started;
+
+        private JsonReader(PushbackReader reader) throws IOException {
+            parser = new JsonFactory().createParser(reader);
+        }
+
+        @Override
+        public FlowDefinition next() throws IOException {
+            JsonToken token = parser.nextToken();
+            if (!started) {
+                started = true;
+                // Objects enclosed in an array are streamed element by element
+                if (token == JsonToken.START_ARRAY) {
+                    token = parser.nextToken();
+                }
+            }
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a flow object at " + parser.getCurrentLocation());
+            }
+
+            String deviceId = null;
+            String payload = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("deviceId".equals(field)) {
+                    deviceId = parser.getValueAsString();
+                } else if ("payload".equals(field)) {
+                    payload = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (payload == null) {
+                throw new IOException("Flow without payload before " + parser.getCurrentLocation());
+            }
+            return new FlowDefinition(deviceId, payload);
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+}
@@ -2,95 +2,181 @@ package org.onosproject.flowruletest.dispatch;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.onosproject.core.ApplicationId;
+import org.onosproject.flowruletest.FlowTestResult;
+import org.onosproject.flowruletest.LatencyStats;
 import org.onosproject.net.DeviceId;
 import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.flow.DefaultFlowRule;
 import org.onosproject.net.flow.FlowRule;
 import org.onosproject.net.flow.FlowRuleExtPayLoad;
+import org.onosproject.net.flow.FlowRuleOperations;
+import org.onosproject.net.flow.FlowRuleOperationsContext;
 import org.onosproject.net.flow.FlowRuleService;
 import org.slf4j.Logger;
 
 /**
  * third party flow rule test code.
+ * <p>
+ * Flow definitions are streamed from the flow file and submitted in
+ * batches as they are read. At most a given number of batches are left
+ * outstanding, so that reading pauses while the flow subsystem catches up.
+ * </p>
  */
 public class FlowRuleTest {
 
+    /**
+     * Name of the test in results.
+     */
+    public static final String NAME = "file";
+
+    private static final String FILE_NAME = "/src/main/resource/org/onosproject/flowruletest/resource/flowruletest.txt";
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_PENDING_BATCHES = 8;
+    // Time to wait for the outstanding batches once the whole file is read
+    private static final long DRAIN_TIMEOUT = 60; //s
+
     private final Logger log = getLogger(getClass());
     protected FlowRuleService flowRuleService;
     protected DeviceService deviceService;
     private ApplicationId appId;
-    private FlowRule[] flowSet = new DefaultFlowRule[10];
     private DeviceId deviceId;
-    private static final String FILE_NAME = "/src/main/resource/org/onosproject/flowruletest/resource/flowruletest.txt";
+    private final Path flowFile;
+    private final int batchSize;
+    private final int maxPendingBatches;
 
     /**
-     * Creates a flow rule test object.
+     * Creates a flow rule test object reading the default flow file.
      * @param flowRuleService service for injecting flow rules into the environment
      * @param deviceService service for interacting with the inventory of infrastructure devices
      * @param appId application identifier
      */
     public FlowRuleTest(FlowRuleService flowRuleService,
                         DeviceService deviceService, ApplicationId appId) {
+        this(flowRuleService, deviceService, appId, null, BATCH_SIZE, MAX_PENDING_BATCHES);
+    }
+
+    /**
+     * Creates a flow rule test object.
+     * @param flowRuleService service for injecting flow rules into the environment
+     * @param deviceService service for interacting with the inventory of infrastructure devices
+     * @param appId application identifier
+     * @param flowFile file holding the flow definitions; null for the default flow file
+     * @param batchSize number of rules submitted per flow rule operations batch
+     * @param maxPendingBatches maximum number of batches submitted but not yet completed
+     */
+    public FlowRuleTest(FlowRuleService flowRuleService, DeviceService deviceService,
+                        ApplicationId appId, Path flowFile, int batchSize, int maxPendingBatches) {
         this.flowRuleService = flowRuleService;
         this.deviceService = deviceService;
         this.deviceId = deviceService.getAvailableDevices().iterator().next().id();
         this.appId = appId;
-        loadFile();
+        this.flowFile = flowFile != null ? flowFile : Paths.get(System.getProperty("user.dir") + FILE_NAME);
+        this.batchSize = batchSize;
+        this.maxPendingBatches = maxPendingBatches;
     }
 
-    private void loadFile() {
-        String relativelyPath = System.getProperty("user.dir");
-        File flowFile = new File(relativelyPath + FILE_NAME);
-        BufferedReader br = null;
-        try {
-            FileReader in = new FileReader(flowFile);
-            br = new BufferedReader(in);
-            FlowRule rule = null;
-            int i = 0;
-            String flow = "";
-            while ((flow = br.readLine()) != null) {
-                rule = buildFlowRule(flow);
-                flowSet[i++] = rule;
-            }
-        } catch (IOException e) {
-            log.info("file does not exist.");
-        } finally {
-            if (br != null) {
-                try {
-                    br.close();
-                } catch (IOException e) {
-                    log.info("nothing");
-                }
-            }
-        }
-    }
-
-    private FlowRule buildFlowRule(String flow) {
-        FlowRuleExtPayLoad payLoad = FlowRuleExtPayLoad.flowRuleExtPayLoad(flow
+    private FlowRule buildFlowRule(FlowDefinitionReader.FlowDefinition flow) {
+        FlowRuleExtPayLoad payLoad = FlowRuleExtPayLoad.flowRuleExtPayLoad(flow.payload()
                 .getBytes());
-        FlowRule flowRule = new DefaultFlowRule(deviceId, null, null, 0, appId,
+        DeviceId target = flow.deviceId() != null ? DeviceId.deviceId(flow.deviceId()) : deviceId;
+        FlowRule flowRule = new DefaultFlowRule(target, null, null, 0, appId,
                                                 0, false, payLoad);
         return flowRule;
     }
 
     /**
      * Apply flow rules to specific devices.
+     *
+     * @return result of applying the rules of the flow file
      */
-    public void applyFlowRules() {
-        flowRuleService.applyFlowRules(flowSet);
+    public FlowTestResult applyFlowRules() {
+        PendingBatches pendingBatches = new PendingBatches(maxPendingBatches);
+        Queue<Long> batchLatencies = new ConcurrentLinkedQueue<>();
+        AtomicLong applied = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        long submitted = 0;
+
+        long startTime = System.currentTimeMillis();
+        long start = System.nanoTime();
+        try (FlowDefinitionReader reader = FlowDefinitionReader.open(flowFile)) {
+            FlowRuleOperations.Builder batch = FlowRuleOperations.builder();
+            int batchRules = 0;
+            FlowDefinitionReader.FlowDefinition flow;
+            while ((flow = reader.next()) != null) {
+                batch.add(buildFlowRule(flow));
+                if (++batchRules == batchSize) {
+                    submit(batch, batchRules, pendingBatches, batchLatencies, applied, failures);
+                    submitted += batchRules;
+                    batch = FlowRuleOperations.builder();
+                    batchRules = 0;
+                }
+            }
+            if (batchRules > 0) {
+                submit(batch, batchRules, pendingBatches, batchLatencies, applied, failures);
+                submitted += batchRules;
+            }
+        } catch (IOException e) {
+            log.warn("Unable to read flow file {}: {}", flowFile, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Also wait when stopped, so that no batch adds rules after they are removed
+        long drainTimeout = Thread.currentThread().isInterrupted() ? PendingBatches.STOP_TIMEOUT :
+                TimeUnit.SECONDS.toMillis(DRAIN_TIMEOUT);
+        if (!pendingBatches.awaitCompletion(drainTimeout)) {
+            log.warn("{} flow rule batches still pending after {} ms", pendingBatches.pending(), drainTimeout);
+        }
+
+        FlowTestResult result = FlowTestResult.builder(NAME)
+                .startTime(startTime)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .devices(1)
+                .rulesSubmitted(submitted)
+                .rulesConfirmed(applied.get())
+                .failures(failures.get())
+                .latency("batch", LatencyStats.of(batchLatencies.stream().mapToLong(Long::longValue).toArray()))
+                .build();
+        log.info("{}", result);
+        return result;
+    }
+
+    // Blocks while too many batches are outstanding
+    private void submit(FlowRuleOperations.Builder batch, int rules, PendingBatches pendingBatches,
+                        Queue<Long> batchLatencies, AtomicLong applied, AtomicLong failures)
+            throws InterruptedException {
+        pendingBatches.acquire();
+        long batchStart = System.nanoTime();
+        flowRuleService.apply(batch.build(new FlowRuleOperationsContext() {
+            @Override
+            public void onSuccess(FlowRuleOperations ops) {
+                batchLatencies.add(System.nanoTime() - batchStart);
+                applied.addAndGet(rules);
+                pendingBatches.release();
+            }
+
+            @Override
+            public void onError(FlowRuleOperations ops) {
+                batchLatencies.add(System.nanoTime() - batchStart);
+                failures.addAndGet(rules);
+                pendingBatches.release();
+            }
+        }));
     }
 
     /**
      * Remove flow rules from specific devices.
      */
     public void removeFlowRules() {
-        flowRuleService.removeFlowRules(flowSet);
+        flowRuleService.removeFlowRulesById(appId);
     }
 
 }
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.flowruletest.dispatch;
+
+import static org.onlab.util.Tools.groupedThreads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.onosproject.core.ApplicationId;
+import org.onosproject.flowruletest.FlowTestResult;
+import org.onosproject.flowruletest.LatencyStats;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.device.DeviceService;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleEvent;
+import org.onosproject.net.flow.FlowRuleListener;
+import org.onosproject.net.flow.FlowRuleOperations;
+import org.onosproject.net.flow.FlowRuleOperationsContext;
+import org.onosproject.net.flow.FlowRuleService;
+import org.slf4j.Logger;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Parallel flow programming test: shards the rules across the available
+ * devices and has a pool of workers build and submit the batches of every
+ * device concurrently, measuring the aggregate rate at which rules are
+ * reported as added.
+ * <p>
+ * When scaling is enabled the test runs several rounds on a growing number
+ * of devices, doubling the device count every round up to all available
+ * devices, and removes the rules of a round before starting the next one.
+ * The aggregate rate of each round shows whether flow programming scales
+ * with the number of devices or is bottlenecked centrally.
+ * </p>
+ */
+public class ParallelFlowRuleTest {
+
+    /**
+     * Name of the test in results.
+     */
+    public static final String NAME = "parallel";
+
+    private final Logger log = getLogger(getClass());
+
+    private final FlowRuleService flowRuleService;
+    private final DeviceService deviceService;
+    private final ApplicationId appId;
+    private final int rulesPerDevice;
+    private final int batchSize;
+    private final int workers;
+    private final boolean scale;
+
+    private final InternalFlowRuleListener listener = new InternalFlowRuleListener();
+    // Rules pending confirmation of their addition mapped to their submission time
+    private final ConcurrentMap<FlowId, Long> pendingAdds = Maps.newConcurrentMap();
+    private final Set<FlowId> pendingRemoves = Sets.newConcurrentHashSet();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong submittedRules = new AtomicLong();
+    private final PendingBatches pendingBatches = new PendingBatches();
+    private volatile CountDownLatch added;
+    private volatile CountDownLatch removed;
+    private volatile long lastAddedNanos;
+    private volatile Map<DeviceId, Queue<Long>> addLatencies;
+
+    /**
+     * Creates a parallel flow programming test.
+     *
+     * @param flowRuleService flow rule service
+     * @param deviceService device service
+     * @param appId application the rules are installed for
+     * @param rulesPerDevice number of rules to install on every device
+     * @param batchSize number of rules submitted per flow rule operations batch
+     * @param workers number of threads submitting batches concurrently
+     * @param scale true to run rounds on a doubling number of devices
+     */
+    public ParallelFlowRuleTest(FlowRuleService flowRuleService, DeviceService deviceService,
+                                ApplicationId appId, int rulesPerDevice, int batchSize,
+                                int workers, boolean scale) {
+        this.flowRuleService = flowRuleService;
+        this.deviceService = deviceService;
+        this.appId = appId;
+        this.rulesPerDevice = rulesPerDevice;
+        this.batchSize = batchSize;
+        this.workers = workers;
+        this.scale = scale;
+    }
+
+    /**
+     * Installs the rules on all devices, or on a growing number of devices
+     * when scaling, waiting for each round to be added or the timeout to
+     * expire. When interrupted, stops after the current round and returns
+     * the partial result with the interrupt status set.
+     *
+     * @param timeoutMillis maximum time to wait for the rules of a round
+     * @return result of the last round run, holding the results of all
+     * rounds when scaling
+     */
+    public FlowTestResult run(long timeoutMillis) {
+        List<DeviceId> devices = Lists.newArrayList();
+        deviceService.getAvailableDevices().forEach(device -> devices.add(device.id()));
+
+        List<Integer> deviceCounts = Lists.newArrayList();
+        if (scale) {
+            for (int count = 1; count < devices.size(); count *= 2) {
+                deviceCounts.add(count);
+            }
+        }
+        deviceCounts.add(devices.size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                workers, groupedThreads("onos/flowtest", "parallel-%d"));
+        flowRuleService.addListener(listener);
+        try {
+            List<FlowTestResult> rounds = Lists.newArrayList();
+            try {
+                for (int i = 0; i < deviceCounts.size(); i++) {
+                    if (i > 0) {
+                        removeRound(timeoutMillis);
+                    }
+                    rounds.add(runRound(devices.subList(0, deviceCounts.get(i)),
+                                        executor, timeoutMillis));
+                    // A stopped test reports the rounds run so far
+                    if (Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // No worker or batch may add rules once the rules of the test are removed
+                stopWorkers(executor);
+            }
+            FlowTestResult last = rounds.get(rounds.size() - 1);
+            FlowTestResult.Builder result = FlowTestResult.builder(NAME)
+                    .startTime(last.startTime())
+                    .elapsedMillis(last.elapsedMillis())
+                    .devices(last.devices())
+                    .rulesSubmitted(last.rulesSubmitted())
+                    .rulesConfirmed(last.rulesConfirmed())
+                    .failures(last.failures())
+                    .latencies(last.latencies());
+            if (scale) {
+                rounds.forEach(result::round);
+            }
+            FlowTestResult built = result.build();
+            log.info("{}", built);
+            return built;
+        } finally {
+            flowRuleService.removeListener(listener);
+        }
+    }
+
+    // Interrupts the workers and waits for them to terminate and for their
+    // batches to complete, even if interrupted itself
+    private void stopWorkers(ExecutorService executor) {
+        executor.shutdownNow();
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (!executor.awaitTermination(PendingBatches.STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                log.warn("Workers still running after {} ms", PendingBatches.STOP_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!pendingBatches.awaitCompletion(PendingBatches.STOP_TIMEOUT)) {
+            log.warn("{} flow rule batches still pending after {} ms",
+                     pendingBatches.pending(), PendingBatches.STOP_TIMEOUT);
+        }
+    }
+
+    /**
+     * Removes all rules installed by the test. Meant to be called once
+     * {@link #run(long)} has returned, when no worker or batch is in flight
+     * any more.
+     */
+    public void removeFlowRules() {
+        flowRuleService.removeFlowRulesById(appId);
+    }
+
+    // Returns the partial result of the round when interrupted
+    private FlowTestResult runRound(List<DeviceId> devices, ExecutorService executor,
+                                    long timeoutMillis) {
+        int rules = devices.size() * rulesPerDevice;
+        pendingAdds.clear();
+        failures.set(0);
+        submittedRules.set(0);
+        addLatencies = Maps.newHashMap();
+        devices.forEach(deviceId -> addLatencies.put(deviceId, new ConcurrentLinkedQueue<>()));
+        added = new CountDownLatch(rules);
+
+        log.info("Installing {} rules on {} devices using {} workers", rules, devices.size(), workers);
+        long startTime = System.currentTimeMillis();
+        long start = System.nanoTime();
+        lastAddedNanos = start;
+        List<Future<?>> submissions = Lists.newArrayList();
+        devices.forEach(deviceId -> submissions.add(executor.submit(() -> submit(deviceId))));
+        try {
+            for (Future<?> submission : submissions) {
+                try {
+                    submission.get();
+                } catch (ExecutionException e) {
+                    log.warn("Unable to submit rules", e.getCause());
+                }
+            }
+            if (!added.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("{} rules not added after {} ms", added.getCount(), timeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Counts the rules of the stopped round once nothing is submitted any more
+            stopWorkers(executor);
+            log.info("Parallel test stopped after submitting {} rules", submittedRules.get());
+        }
+        long end = added.getCount() == 0 ? lastAddedNanos : System.nanoTime();
+
+        FlowTestResult.Builder result = FlowTestResult.builder(NAME)
+                .startTime(startTime)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(end - start))
+                .devices(devices.size())
+                .rulesSubmitted(submittedRules.get())
+                .rulesConfirmed(rules - added.getCount())
+                .failures(failures.get());
+        addLatencies.forEach((deviceId, samples) -> result.latency(
+                "add:" + deviceId, LatencyStats.of(samples.stream().mapToLong(Long::longValue).toArray())));
+        FlowTestResult round = result.build();
+        log.info("{} devices: {} rules/s", devices.size(), round.rate());
+        return round;
+    }
+
+    // Builds the rules of a device and submits them in batches
+    private void submit(DeviceId deviceId) {
+        List<FlowRule> rules = Lists.newArrayListWithCapacity(rulesPerDevice);
+        for (int i = 0; i < rulesPerDevice; i++) {
+            rules.add(BulkFlowRuleTest.buildRule(deviceId, appId, i));
+        }
+        for (List<FlowRule> batch : Lists.partition(rules, batchSize)) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            long batchStart = System.nanoTime();
+            FlowRuleOperations.Builder ops = FlowRuleOperations.builder();
+            batch.forEach(rule -> {
+                pendingAdds.put(rule.id(), batchStart);
+                ops.add(rule);
+            });
+            pendingBatches.submitted();
+            flowRuleService.apply(ops.build(new FlowRuleOperationsContext() {
+                @Override
+                public void onSuccess(FlowRuleOperations ops) {
+                    pendingBatches.release();
+                }
+
+                @Override
+                public void onError(FlowRuleOperations ops) {
+                    failures.incrementAndGet();
+                    pendingBatches.release();
+                }
+            }));
+            submittedRules.addAndGet(batch.size());
+        }
+    }
+
+    // Removes the rules of the previous round and waits until they are gone
+    private void removeRound(long timeoutMillis) throws InterruptedException {
+        // Batches left over by a timed out round would re-add rules after the removal
+        if (!pendingBatches.awaitCompletion(timeoutMillis)) {
+            log.warn("{} flow rule batches still pending after {} ms", pendingBatches.pending(), timeoutMillis);
+        }
+        pendingRemoves.clear();
+        addLatencies.keySet().forEach(deviceId -> {
+            for (int i = 0; i < rulesPerDevice; i++) {
+                pendingRemoves.add(BulkFlowRuleTest.buildRule(deviceId, appId, i).id());
+            }
+        });
+        removed = new CountDownLatch(pendingRemoves.size());
+        removeFlowRules();
+        if (!removed.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            log.warn("{} rules not removed after {} ms", removed.getCount(), timeoutMillis);
+        }
+    }
+
+    private class InternalFlowRuleListener implements FlowRuleListener {
+        @Override
+        public void event(FlowRuleEvent event) {
+            FlowId id = event.subject().id();
+            if (event.type() == FlowRuleEvent.Type.RULE_ADDED) {
+                Long submitted = pendingAdds.remove(id);
+                if (submitted != null) {
+                    lastAddedNanos = System.nanoTime();
+                    addLatencies.get(event.subject().deviceId()).add(lastAddedNanos - submitted);
+                    added.countDown();
+                }
+            } else if (event.type() == FlowRuleEvent.Type.RULE_REMOVED
+                    && pendingRemoves.remove(id)) {
+                removed.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.flowruletest.dispatch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the flow rule operation batches a test has submitted and that
+ * have not completed yet, optionally bounding them.
+ * <p>
+ * Tests wait for their outstanding batches before returning, also when
+ * interrupted, so that their rules are only removed once no batch can
+ * still add any.
+ * </p>
+ */
+final class PendingBatches {
+
+    /**
+     * Time in milliseconds an interrupted test waits for its outstanding batches.
+     */
+    static final long STOP_TIMEOUT = 10000L;
+
+    private final int maxPending;
+    private int pending;
+
+    /**
+     * Creates an unbounded batch counter.
+     */
+    PendingBatches() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a batch counter.
+     *
+     * @param maxPending maximum number of batches submitted but not yet completed
+     */
+    PendingBatches(int maxPending) {
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Records a batch about to be submitted, blocking while the maximum
+     * number of batches is outstanding.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized void acquire() throws InterruptedException {
+        while (pending >= maxPending) {
+            wait();
+        }
+        pending++;
+    }
+
+    /**
+     * Records a batch about to be submitted, without bounding the
+     * outstanding batches.
+     */
+    synchronized void submitted() {
+        pending++;
+    }
+
+    /**
+     * Records the completion of a batch, successful or not.
+     */
+    synchronized void release() {
+        pending--;
+        notifyAll();
+    }
+
+    /**
+     * Returns the number of batches submitted but not yet completed.
+     *
+     * @return outstanding batches
+     */
+    synchronized int pending() {
+        return pending;
+    }
+
+    /**
+     * Waits for all outstanding batches to complete. Interrupts do not cut
+     * the wait short; the interrupt status is restored before returning.
+     *
+     * @param timeoutMillis maximum time to wait
+     * @return true if no batch is outstanding any more
+     */
+    synchronized boolean awaitCompletion(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        boolean interrupted = false;
+        try {
+            while (pending > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            return true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
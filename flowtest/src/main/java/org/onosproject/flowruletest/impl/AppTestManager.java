@@ -1,21 +1,45 @@
 package org.onosproject.flowruletest.impl;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static org.onlab.util.Tools.get;
+import static org.onlab.util.Tools.groupedThreads;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.nio.file.Paths;
+import java.util.Dictionary;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
 import org.onosproject.flowruletest.AppTestService;
+import org.onosproject.flowruletest.FlowTestResult;
+import org.onosproject.flowruletest.dispatch.BulkFlowRuleTest;
+import org.onosproject.flowruletest.dispatch.ChurnFlowRuleTest;
 import org.onosproject.flowruletest.dispatch.FlowRuleTest;
+import org.onosproject.flowruletest.dispatch.ParallelFlowRuleTest;
 import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.flow.FlowRuleService;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
+import com.google.common.collect.ImmutableSet;
+
 /**
  * Test for a application.
  */
@@ -24,6 +48,7 @@ import org.slf4j.Logger;
 public class AppTestManager implements AppTestService {
 
     private static final String APP_TEST = "org.onosproject.apptest";
+    private static final long STOP_TIMEOUT = 30000L;
     private final Logger log = getLogger(getClass());
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
@@ -32,20 +57,239 @@ public class AppTestManager implements AppTestService {
     protected FlowRuleService flowRuleService;
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected DeviceService deviceService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ComponentConfigService cfgService;
+
+    private static final String TEST_FILE = FlowRuleTest.NAME;
+    private static final Set<String> TESTS =
+            ImmutableSet.of(FlowRuleTest.NAME, BulkFlowRuleTest.NAME, ChurnFlowRuleTest.NAME,
+                            ParallelFlowRuleTest.NAME);
+
+    private static final String TEST = TEST_FILE;
+    @Property(name = "test", value = TEST,
+            label = "Test run on activation; file applies the rules of the flow rule file, " +
+                    "bulk measures flow programming throughput, churn keeps adding, " +
+                    "modifying and removing rules, parallel programs all devices concurrently")
+    private String test = TEST;
+
+    private static final int RULES_PER_DEVICE = 1000;
+    @Property(name = "rulesPerDevice", intValue = RULES_PER_DEVICE,
+            label = "Number of rules the bulk, churn and parallel tests program on every available device")
+    private int rulesPerDevice = RULES_PER_DEVICE;
+
+    private static final int BATCH_SIZE = 100;
+    @Property(name = "batchSize", intValue = BATCH_SIZE,
+            label = "Number of rules submitted per flow rule operations batch")
+    private int batchSize = BATCH_SIZE;
+
+    private static final int TIMEOUT = 60;
+    @Property(name = "timeout", intValue = TIMEOUT,
+            label = "Seconds to wait for the rules of the bulk test, or of a parallel test round, to be added")
+    private int timeout = TIMEOUT;
+
+    private static final String FLOW_FILE = "";
+    @Property(name = "flowFile", value = FLOW_FILE,
+            label = "Flow definition file read by the file test; empty for the bundled flow rule file")
+    private String flowFile = FLOW_FILE;
+
+    private static final int MAX_PENDING_BATCHES = 8;
+    @Property(name = "maxPendingBatches", intValue = MAX_PENDING_BATCHES,
+            label = "Maximum number of batches of the file test submitted but not yet completed")
+    private int maxPendingBatches = MAX_PENDING_BATCHES;
+
+    private static final int CHURN_RATE = 1000;
+    @Property(name = "churnRate", intValue = CHURN_RATE,
+            label = "Target rule operations per second of the churn test")
+    private int churnRate = CHURN_RATE;
+
+    private static final int CHURN_DURATION = 60;
+    @Property(name = "churnDuration", intValue = CHURN_DURATION,
+            label = "Seconds the churn test keeps churning rules")
+    private int churnDuration = CHURN_DURATION;
+
+    private static final int WORKERS = 8;
+    @Property(name = "workers", intValue = WORKERS,
+            label = "Number of threads submitting the batches of the parallel test")
+    private int workers = WORKERS;
+
+    private static final boolean SCALE_DEVICES = false;
+    @Property(name = "scaleDevices", boolValue = SCALE_DEVICES,
+            label = "Run the parallel test in rounds on a doubling number of devices")
+    private boolean scaleDevices = SCALE_DEVICES;
+
     private ApplicationId appId;
     FlowRuleTest flowRule;
+    private BulkFlowRuleTest bulkTest;
+    private ChurnFlowRuleTest churnTest;
+    private ParallelFlowRuleTest parallelTest;
+    private ExecutorService testExecutor;
+    private Future<?> runningTest;
+    private volatile String currentTest;
+    private volatile FlowTestResult lastResult;
 
     @Activate
-    protected void activate() {
+    protected void activate(ComponentContext context) {
         log.info("APP-TEST started");
         appId = coreService.registerApplication(APP_TEST);
-        flowRule = new FlowRuleTest(flowRuleService, deviceService, appId);
-        flowRule.applyFlowRules();
+        cfgService.registerProperties(getClass());
+        readComponentConfiguration(context);
+        startTest(null);
     }
 
     @Deactivate
     protected void deactivate() {
-        flowRule.removeFlowRules();
+        cfgService.unregisterProperties(getClass(), false);
+        stopTest();
         log.info("APP-TEST Stopped");
     }
+
+    @Modified
+    protected void modified(ComponentContext context) {
+        stopTest();
+        readComponentConfiguration(context);
+        startTest(null);
+    }
+
+    /**
+     * Extracts the test parameters from the component configuration context.
+     *
+     * @param context the component context
+     */
+    private void readComponentConfiguration(ComponentContext context) {
+        Dictionary<?, ?> properties = context.getProperties();
+
+        String s = get(properties, "test");
+        test = isNullOrEmpty(s) ? TEST : s.trim();
+
+        rulesPerDevice = getIntProperty(properties, "rulesPerDevice", RULES_PER_DEVICE);
+        batchSize = getIntProperty(properties, "batchSize", BATCH_SIZE);
+        timeout = getIntProperty(properties, "timeout", TIMEOUT);
+        maxPendingBatches = getIntProperty(properties, "maxPendingBatches", MAX_PENDING_BATCHES);
+        churnRate = getIntProperty(properties, "churnRate", CHURN_RATE);
+        churnDuration = getIntProperty(properties, "churnDuration", CHURN_DURATION);
+        workers = getIntProperty(properties, "workers", WORKERS);
+
+        s = get(properties, "scaleDevices");
+        scaleDevices = isNullOrEmpty(s) ? SCALE_DEVICES : Boolean.parseBoolean(s.trim());
+
+        s = get(properties, "flowFile");
+        flowFile = isNullOrEmpty(s) ? FLOW_FILE : s.trim();
+
+        log.info("Configured. test={}, rulesPerDevice={}, batchSize={}, timeout={}, " +
+                         "flowFile={}, maxPendingBatches={}, churnRate={}, churnDuration={}, " +
+                         "workers={}, scaleDevices={}",
+                 test, rulesPerDevice, batchSize, timeout, flowFile, maxPendingBatches,
+                 churnRate, churnDuration, workers, scaleDevices);
+    }
+
+    private int getIntProperty(Dictionary<?, ?> properties, String name, int defaultValue) {
+        String s = get(properties, name);
+        try {
+            return isNullOrEmpty(s) ? defaultValue : Math.max(1, Integer.parseInt(s.trim()));
+        } catch (NumberFormatException | ClassCastException e) {
+            log.info("{} Format Exception, using {}", name, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public synchronized void startTest(String name) {
+        String selected = name != null ? name : test;
+        if (!TESTS.contains(selected)) {
+            checkArgument(name == null, "Unknown test %s", name);
+            selected = TEST_FILE;
+        }
+        stopTest();
+
+        Callable<FlowTestResult> run;
+        if (BulkFlowRuleTest.NAME.equals(selected)) {
+            bulkTest = new BulkFlowRuleTest(flowRuleService, deviceService, appId,
+                                            rulesPerDevice, batchSize);
+            BulkFlowRuleTest bulk = bulkTest;
+            run = () -> bulk.run(TimeUnit.SECONDS.toMillis(timeout));
+        } else if (ChurnFlowRuleTest.NAME.equals(selected)) {
+            churnTest = new ChurnFlowRuleTest(flowRuleService, deviceService, appId,
+                                              rulesPerDevice, churnRate, batchSize);
+            ChurnFlowRuleTest churn = churnTest;
+            run = () -> churn.run(TimeUnit.SECONDS.toMillis(churnDuration));
+        } else if (ParallelFlowRuleTest.NAME.equals(selected)) {
+            parallelTest = new ParallelFlowRuleTest(flowRuleService, deviceService, appId,
+                                                    rulesPerDevice, batchSize, workers, scaleDevices);
+            ParallelFlowRuleTest parallel = parallelTest;
+            run = () -> parallel.run(TimeUnit.SECONDS.toMillis(timeout));
+        } else {
+            flowRule = new FlowRuleTest(flowRuleService, deviceService, appId,
+                                        isNullOrEmpty(flowFile) ? null : Paths.get(flowFile),
+                                        batchSize, maxPendingBatches);
+            run = flowRule::applyFlowRules;
+        }
+
+        String started = selected;
+        currentTest = started;
+        testExecutor = Executors.newSingleThreadExecutor(groupedThreads("onos/flowtest", "runner"));
+        // Stopped tests return their partial result, published before the runner terminates
+        runningTest = testExecutor.submit(() -> {
+            try {
+                lastResult = run.call();
+            } catch (Exception e) {
+                log.warn("Flow test {} failed", started, e);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void stopTest() {
+        if (runningTest != null) {
+            runningTest.cancel(true);
+            runningTest = null;
+            awaitRunner();
+        }
+        // The runner no longer submits batches, so the rules can be removed for good
+        if (flowRule != null) {
+            flowRule.removeFlowRules();
+            flowRule = null;
+        }
+        if (bulkTest != null) {
+            bulkTest.removeFlowRules();
+            bulkTest = null;
+        }
+        if (churnTest != null) {
+            churnTest.removeFlowRules();
+            churnTest = null;
+        }
+        if (parallelTest != null) {
+            parallelTest.removeFlowRules();
+            parallelTest = null;
+        }
+    }
+
+    /**
+     * Waits for the thread running the last test to terminate.
+     */
+    private void awaitRunner() {
+        testExecutor.shutdownNow();
+        try {
+            if (!testExecutor.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                log.warn("Flow test {} did not stop within {} ms", currentTest, STOP_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        testExecutor = null;
+    }
+
+    @Override
+    public Optional<String> currentTest() {
+        return Optional.ofNullable(currentTest);
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return runningTest != null && !runningTest.isDone();
+    }
+
+    @Override
+    public Optional<FlowTestResult> lastResult() {
+        return Optional.ofNullable(lastResult);
+    }
 }
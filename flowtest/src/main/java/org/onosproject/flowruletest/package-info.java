@@ -16,6 +16,6 @@
 
 /**
  *  Test for flow rule subsystem extension.
- *  Now it has no APIs, Maybe it can add other methods in future.
+ *  Exposes control of flow test runs and their results.
  */
 package org.onosproject.flowruletest;
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.flowruletest.rest;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.onlab.rest.BaseResource;
+import org.onosproject.flowruletest.AppTestService;
+import org.onosproject.flowruletest.FlowTestResult;
+import org.onosproject.flowruletest.LatencyStats;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Flow test run control and results.
+ */
+@Path("test")
+public class FlowTestResource extends BaseResource {
+
+    /**
+     * Starts a flow test run, stopping any run in progress.
+     *
+     * @param test name of the test to run; the configured test if omitted
+     * @return status of the started run
+     */
+    @Path("/start")
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response start(@QueryParam("test") String test) {
+        AppTestService service = get(AppTestService.class);
+        try {
+            service.startTest(test);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+        return Response.ok(status(new ObjectMapper(), service).toString()).build();
+    }
+
+    /**
+     * Stops the flow test run in progress and removes its rules.
+     *
+     * @return status after stopping
+     */
+    @Path("/stop")
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response stop() {
+        AppTestService service = get(AppTestService.class);
+        service.stopTest();
+        return Response.ok(status(new ObjectMapper(), service).toString()).build();
+    }
+
+    /**
+     * Returns whether a flow test run is in progress and the result of the
+     * most recently completed run.
+     *
+     * @return flow test status
+     */
+    @Path("/status")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response status() {
+        return Response.ok(status(new ObjectMapper(), get(AppTestService.class)).toString()).build();
+    }
+
+    // Produces JSON for the current test and the last result, if any.
+    private ObjectNode status(ObjectMapper mapper, AppTestService service) {
+        ObjectNode node = mapper.createObjectNode()
+                .put("running", service.isRunning());
+        service.currentTest().ifPresent(test -> node.put("test", test));
+        service.lastResult().ifPresent(result -> node.set("result", json(mapper, result)));
+        return node;
+    }
+
+    // Produces JSON for a test result.
+    private ObjectNode json(ObjectMapper mapper, FlowTestResult result) {
+        ObjectNode node = mapper.createObjectNode()
+                .put("test", result.test())
+                .put("startTime", result.startTime())
+                .put("elapsedMillis", result.elapsedMillis())
+                .put("devices", result.devices())
+                .put("rulesSubmitted", result.rulesSubmitted())
+                .put("rulesConfirmed", result.rulesConfirmed())
+                .put("failures", result.failures())
+                .put("rate", result.rate());
+        ObjectNode latencies = mapper.createObjectNode();
+        result.latencies().forEach((name, stats) -> latencies.set(name, json(mapper, stats)));
+        node.set("latencies", latencies);
+        if (!result.rounds().isEmpty()) {
+            ArrayNode rounds = mapper.createArrayNode();
+            result.rounds().forEach(round -> rounds.add(json(mapper, round)));
+            node.set("rounds", rounds);
+        }
+        return node;
+    }
+
+    // Produces JSON for a latency summary; values are in microseconds.
+    private ObjectNode json(ObjectMapper mapper, LatencyStats stats) {
+        return mapper.createObjectNode()
+                .put("count", stats.count())
+                .put("min", stats.min())
+                .put("mean", stats.mean())
+                .put("p50", stats.p50())
+                .put("p90", stats.p90())
+                .put("p99", stats.p99())
+                .put("max", stats.max());
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.flowruletest.dispatch;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.ChassisId;
+import org.onosproject.core.DefaultApplicationId;
+import org.onosproject.flowruletest.FlowTestResult;
+import org.onosproject.net.DefaultDevice;
+import org.onosproject.net.Device;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.device.DeviceServiceAdapter;
+import org.onosproject.net.flow.FlowRuleEvent;
+import org.onosproject.net.flow.FlowRuleListener;
+import org.onosproject.net.flow.FlowRuleOperation;
+import org.onosproject.net.flow.FlowRuleOperations;
+import org.onosproject.net.flow.FlowRuleServiceAdapter;
+import org.onosproject.net.provider.ProviderId;
+
+import com.google.common.collect.ImmutableList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the slot state machine of the churn test, churning the single
+ * slot of a single device against a flow rule service completing every
+ * batch synchronously.
+ */
+public class ChurnFlowRuleTestTest {
+
+    private static final long DURATION = 300; //ms
+    private static final Device DEVICE = new DefaultDevice(
+            new ProviderId("of", "test"), DeviceId.deviceId("of:0000000000000001"),
+            Device.Type.SWITCH, "", "", "", "", new ChassisId());
+
+    private final List<FlowRuleOperation.Type> submitted = new ArrayList<>();
+    private final Set<FlowRuleOperation.Type> failing = EnumSet.noneOf(FlowRuleOperation.Type.class);
+    private FlowRuleListener listener;
+    private long failedOperations;
+    private ChurnFlowRuleTest churn;
+
+    @Before
+    public void setUp() {
+        churn = new ChurnFlowRuleTest(new FlowRuleServiceAdapter() {
+            @Override
+            public void addListener(FlowRuleListener added) {
+                listener = added;
+            }
+
+            @Override
+            public void apply(FlowRuleOperations ops) {
+                complete(ops);
+            }
+        }, new DeviceServiceAdapter() {
+            @Override
+            public Iterable<Device> getAvailableDevices() {
+                return ImmutableList.of(DEVICE);
+            }
+        }, new DefaultApplicationId(1, "test"), 1, 1000, 10);
+    }
+
+    // Fails the whole batch if it holds a failing operation, otherwise
+    // reports its adds and removes as done
+    private void complete(FlowRuleOperations ops) {
+        List<FlowRuleOperation> operations = new ArrayList<>();
+        ops.stages().forEach(operations::addAll);
+        operations.forEach(op -> submitted.add(op.type()));
+        if (operations.stream().anyMatch(op -> failing.contains(op.type()))) {
+            failedOperations += operations.size();
+            ops.callback().onError(ops);
+            return;
+        }
+        operations.forEach(op -> {
+            if (op.type() == FlowRuleOperation.Type.ADD) {
+                listener.event(new FlowRuleEvent(FlowRuleEvent.Type.RULE_ADDED, op.rule()));
+            } else if (op.type() == FlowRuleOperation.Type.REMOVE) {
+                listener.event(new FlowRuleEvent(FlowRuleEvent.Type.RULE_REMOVED, op.rule()));
+            }
+        });
+        ops.callback().onSuccess(ops);
+    }
+
+    private long count(FlowRuleOperation.Type type) {
+        return submitted.stream().filter(type::equals).count();
+    }
+
+    /**
+     * Tests that confirmed adds and removes keep the slot cycling.
+     */
+    @Test
+    public void churnCycle() {
+        FlowTestResult result = churn.run(DURATION);
+
+        assertTrue("Slot not added again", count(FlowRuleOperation.Type.ADD) > 1);
+        assertEquals(count(FlowRuleOperation.Type.ADD) + count(FlowRuleOperation.Type.REMOVE),
+                     result.rulesConfirmed());
+        assertEquals(0, result.failures());
+    }
+
+    /**
+     * Tests that a failed add frees the slot for another add.
+     */
+    @Test
+    public void failedAddFreesSlot() {
+        failing.add(FlowRuleOperation.Type.ADD);
+        FlowTestResult result = churn.run(DURATION);
+
+        assertTrue("Slot stuck adding", count(FlowRuleOperation.Type.ADD) > 1);
+        assertEquals(submitted.size(), count(FlowRuleOperation.Type.ADD));
+        assertEquals(failedOperations, result.failures());
+        assertEquals(0, result.rulesConfirmed());
+    }
+
+    /**
+     * Tests that a failed remove leaves the rule installed, so that the slot
+     * keeps getting modifies and removes but no further add.
+     */
+    @Test
+    public void failedRemoveRestoresSlot() {
+        failing.add(FlowRuleOperation.Type.REMOVE);
+        FlowTestResult result = churn.run(DURATION);
+
+        assertEquals(1, count(FlowRuleOperation.Type.ADD));
+        assertTrue("Slot stuck removing", count(FlowRuleOperation.Type.REMOVE) > 1);
+        assertEquals(failedOperations, result.failures());
+        assertEquals(1, result.rulesConfirmed());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.flowruletest.dispatch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the line and JSON formats of flow definition files.
+ */
+public class FlowDefinitionReaderTest {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("flow-definitions", ".txt");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    // Reads all definitions of the file as deviceId/payload strings
+    private List<String> read(String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        List<String> flows = new ArrayList<>();
+        try (FlowDefinitionReader reader = FlowDefinitionReader.open(file)) {
+            FlowDefinitionReader.FlowDefinition flow;
+            while ((flow = reader.next()) != null) {
+                flows.add(flow.deviceId() + "/" + flow.payload());
+            }
+        }
+        return flows;
+    }
+
+    /**
+     * Tests one definition per line, skipping blank and comment lines.
+     */
+    @Test
+    public void lines() throws IOException {
+        List<String> flows = read("# flows\n\npayload1\n  of:0000000000000001   payload2 with spaces\n");
+
+        assertEquals(2, flows.size());
+        assertEquals("null/payload1", flows.get(0));
+        assertEquals("of:0000000000000001/payload2 with spaces", flows.get(1));
+    }
+
+    /**
+     * Tests JSON objects enclosed in an array, ignoring unknown fields.
+     */
+    @Test
+    public void jsonArray() throws IOException {
+        List<String> flows = read(" [{\"payload\": \"p1\"},\n" +
+                                  "{\"deviceId\": \"of:0000000000000002\", \"priority\": [1, 2]," +
+                                  " \"payload\": \"p2\"}]");
+
+        assertEquals(2, flows.size());
+        assertEquals("null/p1", flows.get(0));
+        assertEquals("of:0000000000000002/p2", flows.get(1));
+    }
+
+    /**
+     * Tests JSON objects following one another without an enclosing array.
+     */
+    @Test
+    public void jsonStream() throws IOException {
+        List<String> flows = read("{\"payload\": \"p1\"}\n{\"payload\": \"p2\", \"deviceId\": \"of:3\"}\n");
+
+        assertEquals(2, flows.size());
+        assertEquals("null/p1", flows.get(0));
+        assertEquals("of:3/p2", flows.get(1));
+    }
+
+    /**
+     * Tests that an empty file holds no definition.
+     */
+    @Test
+    public void empty() throws IOException {
+        assertTrue(read("  \n").isEmpty());
+    }
+
+    /**
+     * Tests that a JSON flow without payload is rejected.
+     */
+    @Test
+    public void jsonWithoutPayload() throws IOException {
+        try {
+            read("[{\"deviceId\": \"of:1\"}]");
+            fail("Flow without payload accepted");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Flow without payload"));
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.onosproject.net.Device;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.MastershipRole;
+import org.onosproject.net.flow.FlowEntry;
+
+import static org.onlab.util.Tools.groupedThreads;
+
+/**
+ * Exports interim records of long-lived flows.
+ * <p>
+ * Without it a flow is only exported when it is removed. Every active
+ * timeout, the flow entries of the devices this instance is master of are
+ * walked and a record with the bytes and packets matched since the flow
+ * was last exported is queued for each flow that has been installed for at
+ * least the active timeout. The walk is spread over the timeout in a fixed
+ * number of slices, each covering the flows of every device whose flow ID
+ * falls in it, so that large flow tables, even of a single device, do not
+ * cost one burst of work per timeout. When a flow is removed, only what it matched
+ * since its last interim record is exported.
+ * </p>
+ * <p>
+ * Walks and removals are both handled on the exporter thread, which alone
+ * touches the flow counters, so that a removal never races a walk of the
+ * same device.
+ * </p>
+ */
+public class ActiveTimeoutExporter {
+
+    // Number of slices the flow walk is spread over
+    static final int SLICES = 10;
+    // Time given to removals still queued when closing
+    private static final long CLOSE_TIMEOUT = 1000; //ms
+
+    private IpfixManager ipfixManager;
+    private final int activeTimeout;
+    private final ScheduledExecutorService executor;
+
+    // Counters of the flows at their last export, by device and flow ID
+    private final Map<DeviceId, Map<Long, FlowState>> states = new HashMap<>();
+    // Devices walked in the current active timeout, and the next slice to walk
+    private Set<DeviceId> devices = Collections.emptySet();
+    private int slice;
+
+    /**
+     * Creates and starts an active timeout exporter.
+     *
+     * @param ipfixManager ipfix manager instance
+     * @param activeTimeout active timeout in seconds
+     */
+    public ActiveTimeoutExporter(IpfixManager ipfixManager, int activeTimeout) {
+        this(ipfixManager, activeTimeout,
+             Executors.newSingleThreadScheduledExecutor(groupedThreads("onos/ipfix", "active-timeout")));
+    }
+
+    /**
+     * Creates and starts an active timeout exporter on the given executor.
+     *
+     * @param ipfixManager ipfix manager instance
+     * @param activeTimeout active timeout in seconds
+     * @param executor single threaded executor walking the flows and handling removals
+     */
+    ActiveTimeoutExporter(IpfixManager ipfixManager, int activeTimeout, ScheduledExecutorService executor) {
+        this.ipfixManager = ipfixManager;
+        this.activeTimeout = activeTimeout;
+        this.executor = executor;
+        long period = Math.max(1, TimeUnit.SECONDS.toMillis(activeTimeout) / SLICES);
+        executor.scheduleAtFixedRate(this::walkSlice, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the active timeout.
+     *
+     * @return active timeout in seconds
+     */
+    public int activeTimeout() {
+        return activeTimeout;
+    }
+
+    /**
+     * Queues the final record of a removed flow, covering what the flow
+     * matched since its last interim record.
+     *
+     * @param entry removed flow entry
+     */
+    public void submitRemoved(FlowEntry entry) {
+        long end = System.currentTimeMillis();
+        try {
+            executor.execute(() -> exportRemoved(entry, end));
+        } catch (RejectedExecutionException e) {
+            // Closed meanwhile, the whole flow is exported without its counters
+            ipfixManager.flowRecordExporter.submit(entry, end - (1000 * entry.life()), end,
+                                                   entry.bytes(), entry.packets());
+        }
+    }
+
+    /**
+     * Stops the exporter once the removals already submitted are exported.
+     */
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues the final record of a removed flow. Runs on the exporter thread.
+     *
+     * @param entry removed flow entry
+     * @param end time of the removal in milliseconds since epoch
+     */
+    void exportRemoved(FlowEntry entry, long end) {
+        Map<Long, FlowState> deviceStates = states.get(entry.deviceId());
+        FlowState last = deviceStates == null ? null : deviceStates.remove(entry.id().value());
+        if (last == null || entry.bytes() < last.bytes || entry.packets() < last.packets) {
+            ipfixManager.flowRecordExporter.submit(entry, end - (1000 * entry.life()), end,
+                                                   entry.bytes(), entry.packets());
+        } else {
+            ipfixManager.flowRecordExporter.submit(entry, last.start, end,
+                                                   entry.bytes() - last.bytes, entry.packets() - last.packets);
+        }
+    }
+
+    private void walkSlice() {
+        try {
+            int current = slice;
+            slice = (slice + 1) % SLICES;
+            if (current == 0) {
+                startWalk();
+            }
+            for (DeviceId deviceId : devices) {
+                walk(deviceId, current);
+            }
+        } catch (RuntimeException e) {
+            ipfixManager.log.warn("IPFIX active timeout export problem: " + e.getMessage());
+        }
+    }
+
+    private void startWalk() {
+        Set<DeviceId> mastered = new HashSet<>();
+        for (Device device : ipfixManager.deviceService.getAvailableDevices()) {
+            if (ipfixManager.deviceService.getRole(device.id()) == MastershipRole.MASTER) {
+                mastered.add(device.id());
+            }
+        }
+        // Flows of devices no longer mastered are exported by their new master
+        states.keySet().retainAll(mastered);
+        devices = mastered;
+    }
+
+    /**
+     * Returns the slice of the walk a flow falls in.
+     *
+     * @param flowId flow ID
+     * @return slice between 0 and {@link #SLICES} excluded
+     */
+    static int slice(long flowId) {
+        return Math.floorMod(Long.hashCode(flowId), SLICES);
+    }
+
+    /**
+     * Queues interim records of the long-lived flows of a device falling in
+     * the given slice. Runs on the exporter thread.
+     *
+     * @param deviceId device whose flows are walked
+     * @param slice slice of the flows to walk
+     */
+    void walk(DeviceId deviceId, int slice) {
+        long now = System.currentTimeMillis();
+        Map<Long, FlowState> deviceStates = states.computeIfAbsent(deviceId, k -> new HashMap<>());
+        Set<Long> walked = new HashSet<>();
+        for (FlowEntry entry : ipfixManager.flowRuleService.getFlowEntries(deviceId)) {
+            long id = entry.id().value();
+            if (slice(id) != slice || entry.state() != FlowEntry.FlowEntryState.ADDED ||
+                    !ipfixManager.isExportedApp(entry.appId())) {
+                continue;
+            }
+            FlowState last = deviceStates.get(id);
+            if (last == null || entry.bytes() < last.bytes || entry.packets() < last.packets) {
+                if (entry.life() < activeTimeout) {
+                    continue;
+                }
+                last = new FlowState(now - (1000 * entry.life()), 0, 0);
+            }
+            long octets = entry.bytes() - last.bytes;
+            long packets = entry.packets() - last.packets;
+            if (packets > 0 && ipfixManager.flowRecordExporter.submit(entry, last.start, now, octets, packets)) {
+                last = new FlowState(now, entry.bytes(), entry.packets());
+            }
+            deviceStates.put(id, last);
+            walked.add(id);
+        }
+        // Flows of the slice gone without a removal event are forgotten
+        deviceStates.keySet().removeIf(id -> slice(id) == slice && !walked.contains(id));
+    }
+
+    /**
+     * Counters of a flow when it was last exported.
+     */
+    private static final class FlowState {
+        // Start of the period not exported yet, in milliseconds since epoch
+        private final long start;
+        private final long bytes;
+        private final long packets;
+
+        private FlowState(long start, long bytes, long packets) {
+            this.start = start;
+            this.bytes = bytes;
+            this.packets = packets;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Export counters of one IPFIX collector.
+ */
+public final class CollectorStatistics {
+
+    private final String collector;
+    private final long messagesSent;
+    private final long recordsSent;
+    private final long recordsDropped;
+    private final int queueDepth;
+    private final long backlogBytes;
+
+    /**
+     * Creates the export counters of a collector.
+     *
+     * @param collector collector address
+     * @param messagesSent number of IPFIX messages sent
+     * @param recordsSent number of data records sent
+     * @param recordsDropped number of data records dropped
+     * @param queueDepth number of record lists waiting to be sent
+     * @param backlogBytes bytes of messages waiting for the collector
+     */
+    public CollectorStatistics(String collector, long messagesSent, long recordsSent,
+                               long recordsDropped, int queueDepth, long backlogBytes) {
+        this.collector = collector;
+        this.messagesSent = messagesSent;
+        this.recordsSent = recordsSent;
+        this.recordsDropped = recordsDropped;
+        this.queueDepth = queueDepth;
+        this.backlogBytes = backlogBytes;
+    }
+
+    /**
+     * Returns the collector address.
+     *
+     * @return collector address
+     */
+    public String collector() {
+        return collector;
+    }
+
+    /**
+     * Returns the number of IPFIX messages sent to the collector.
+     *
+     * @return messages sent
+     */
+    public long messagesSent() {
+        return messagesSent;
+    }
+
+    /**
+     * Returns the number of data records sent to the collector.
+     *
+     * @return records sent
+     */
+    public long recordsSent() {
+        return recordsSent;
+    }
+
+    /**
+     * Returns the number of data records dropped, because the send queue
+     * was full or the message could not be sent.
+     *
+     * @return records dropped
+     */
+    public long recordsDropped() {
+        return recordsDropped;
+    }
+
+    /**
+     * Returns the number of record lists waiting to be sent.
+     *
+     * @return send queue depth
+     */
+    public int queueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Returns the size of the messages encoded but waiting for the
+     * collector, e.g. spooled while a TCP collector is unreachable.
+     *
+     * @return backlog in bytes
+     */
+    public long backlogBytes() {
+        return backlogBytes;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("collector", collector)
+                .add("messagesSent", messagesSent)
+                .add("recordsSent", recordsSent)
+                .add("recordsDropped", recordsDropped)
+                .add("queueDepth", queueDepth)
+                .add("backlogBytes", backlogBytes)
+                .toString();
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.onosproject.ipfix;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.onlab.packet.Ip6Address;
@@ -25,9 +26,6 @@ import org.onosproject.ipfix.packet.Ie;
 import org.onosproject.ipfix.packet.InformationElement;
 import org.onosproject.ipfix.packet.TemplateRecord;
 
-import com.google.common.primitives.Ints;
-import com.google.common.primitives.Longs;
-
 /**
  * IPFIX Data record for switch port receive statistics.
  */
@@ -73,19 +71,22 @@ public class DataRecordPortStatsIn extends DataRecord {
 
     @Override
     public byte[] getBytes() throws HeaderException {
-        try {
-            byte[] data = new byte[LENGTH];
-
-            System.arraycopy(exporterIPv4Address.toOctets(), 0, data, 0, 4);
-            System.arraycopy(exporterIPv6Address.toOctets(), 0, data, 4, 16);
-            System.arraycopy(Ints.toByteArray(ingressInterface), 0, data, 20, 4);
-            System.arraycopy(Longs.toByteArray(octetDeltaCount), 0, data, 24, 8);
-            System.arraycopy(Longs.toByteArray(packetDeltaCount), 0, data, 32, 8);
-            System.arraycopy(Longs.toByteArray(flowStartMilliseconds), 0, data, 40, 8);
-            System.arraycopy(Longs.toByteArray(flowEndMilliseconds), 0, data, 48, 8);
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH);
+        write(buffer);
+        return buffer.array();
+    }
 
-            return data;
-        } catch (Exception e) {
+    @Override
+    public void write(ByteBuffer buffer) throws HeaderException {
+        try {
+            buffer.put(exporterIPv4Address.toOctets());
+            buffer.put(exporterIPv6Address.toOctets());
+            buffer.putInt(ingressInterface);
+            buffer.putLong(octetDeltaCount);
+            buffer.putLong(packetDeltaCount);
+            buffer.putLong(flowStartMilliseconds);
+            buffer.putLong(flowEndMilliseconds);
+        } catch (RuntimeException e) {
             throw new HeaderException("Error while generating the bytes: " + e.getMessage());
         }
     }
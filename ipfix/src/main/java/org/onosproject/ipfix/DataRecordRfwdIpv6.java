@@ -15,6 +15,7 @@
  */
 package org.onosproject.ipfix;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.onlab.packet.Ip6Address;
@@ -26,9 +27,6 @@ import org.onosproject.ipfix.packet.Ie;
 import org.onosproject.ipfix.packet.InformationElement;
 import org.onosproject.ipfix.packet.TemplateRecord;
 
-import com.google.common.primitives.Ints;
-import com.google.common.primitives.Longs;
-import com.google.common.primitives.Shorts;
 
 /**
  * IPFIX Data record for Reactive Forwarding application with IPv4 fields matching.
@@ -131,31 +129,34 @@ public class DataRecordRfwdIpv6 extends DataRecord {
 
     @Override
     public byte[] getBytes() throws HeaderException {
-        try {
-            byte[] data = new byte[LENGTH];
-
-            System.arraycopy(exporterIPv4Address.toOctets(), 0, data, 0, 4);
-            System.arraycopy(exporterIPv6Address.toOctets(), 0, data, 4, 16);
-            System.arraycopy(Longs.toByteArray(flowStartMilliseconds), 0, data, 20, 8);
-            System.arraycopy(Longs.toByteArray(flowEndMilliseconds), 0, data, 28, 8);
-            System.arraycopy(Longs.toByteArray(octetDeltaCount), 0, data, 36, 8);
-            System.arraycopy(Longs.toByteArray(packetDeltaCount), 0, data, 44, 8);
-            System.arraycopy(Ints.toByteArray(ingressInterface), 0, data, 52, 4);
-            System.arraycopy(Ints.toByteArray(egressInterface), 0, data, 56, 4);
-            System.arraycopy(sourceMacAddress.toBytes(), 0, data, 60, 6);
-            System.arraycopy(destinationMacAddress.toBytes(), 0, data, 66, 6);
-            System.arraycopy(Shorts.toByteArray(ethernetType), 0, data, 72, 2);
-            System.arraycopy(Shorts.toByteArray(vlanId), 0, data, 74, 2);
-            System.arraycopy(sourceIPv6Address.toOctets(), 0, data, 76, 16);
-            System.arraycopy(destinationIPv6Address.toOctets(), 0, data, 92, 16);
-            System.arraycopy(Ints.toByteArray(flowLabelIpv6), 0, data, 108, 4);
-            data[112] = protocolIdentifier;
-            data[113] = ipClassOfService;
-            System.arraycopy(Shorts.toByteArray(sourceTransportPort), 0, data, 114, 2);
-            System.arraycopy(Shorts.toByteArray(destinationTransportPort), 0, data, 116, 2);
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH);
+        write(buffer);
+        return buffer.array();
+    }
 
-            return data;
-        } catch (Exception e) {
+    @Override
+    public void write(ByteBuffer buffer) throws HeaderException {
+        try {
+            buffer.put(exporterIPv4Address.toOctets());
+            buffer.put(exporterIPv6Address.toOctets());
+            buffer.putLong(flowStartMilliseconds);
+            buffer.putLong(flowEndMilliseconds);
+            buffer.putLong(octetDeltaCount);
+            buffer.putLong(packetDeltaCount);
+            buffer.putInt(ingressInterface);
+            buffer.putInt(egressInterface);
+            putMac(buffer, sourceMacAddress);
+            putMac(buffer, destinationMacAddress);
+            buffer.putShort(ethernetType);
+            buffer.putShort(vlanId);
+            buffer.put(sourceIPv6Address.toOctets());
+            buffer.put(destinationIPv6Address.toOctets());
+            buffer.putInt(flowLabelIpv6);
+            buffer.put(protocolIdentifier);
+            buffer.put(ipClassOfService);
+            buffer.putShort(sourceTransportPort);
+            buffer.putShort(destinationTransportPort);
+        } catch (RuntimeException e) {
             throw new HeaderException("Error while generating the bytes: " + e.getMessage());
         }
     }
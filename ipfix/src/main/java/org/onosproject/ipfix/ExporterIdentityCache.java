@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix;
+
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip6Address;
+import org.onlab.packet.IpAddress;
+import org.onosproject.net.AnnotationKeys;
+import org.onosproject.net.Device;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.device.DeviceListener;
+import org.onosproject.net.device.DeviceService;
+import org.onosproject.openflow.controller.Dpid;
+
+/**
+ * Caches the exporter identity of devices.
+ * <p>
+ * The exporter IPv4 address is the management address annotation of the
+ * device and the exporter IPv6 address is built from the DPID. Both are
+ * derived once per device instead of once per exported record, and are
+ * derived again after the device is added or updated. The identity of a
+ * removed device is kept, as its final flow records are exported after
+ * the removal; a device unknown altogether gets an identity made of its
+ * DPID only.
+ * </p>
+ */
+public class ExporterIdentityCache implements DeviceListener {
+
+    private final DeviceService deviceService;
+    private final ConcurrentMap<DeviceId, ExporterIdentity> identities = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an exporter identity cache.
+     *
+     * @param deviceService device service used to look up devices
+     */
+    public ExporterIdentityCache(DeviceService deviceService) {
+        this.deviceService = deviceService;
+    }
+
+    /**
+     * Returns the exporter identity of a device.
+     *
+     * @param deviceId device identifier
+     * @return exporter identity
+     */
+    public ExporterIdentity get(DeviceId deviceId) {
+        return identities.computeIfAbsent(deviceId, id -> {
+            Device device = deviceService.getDevice(id);
+            return device != null ? new ExporterIdentity(device) : new ExporterIdentity(id, null);
+        });
+    }
+
+    /**
+     * Returns the exporter identity of a device.
+     *
+     * @param device device
+     * @return exporter identity
+     */
+    public ExporterIdentity get(Device device) {
+        return identities.computeIfAbsent(device.id(), id -> new ExporterIdentity(device));
+    }
+
+    @Override
+    public void event(DeviceEvent event) {
+        switch (event.type()) {
+            case DEVICE_ADDED:
+            case DEVICE_UPDATED:
+                identities.remove(event.subject().id());
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * IPFIX exporter addresses and observation domain of a device.
+     */
+    public static final class ExporterIdentity {
+        private final IpAddress ipv4;
+        private final Ip6Address ipv6;
+        private final long dpid;
+
+        private ExporterIdentity(Device device) {
+            this(device.id(), device.annotations().value(AnnotationKeys.MANAGEMENT_ADDRESS));
+        }
+
+        private ExporterIdentity(DeviceId deviceId, String managementAddress) {
+            ipv4 = isNullOrEmpty(managementAddress) ? Ip4Address.ZERO : IpAddress.valueOf(managementAddress);
+            dpid = Dpid.dpid(deviceId.uri()).value();
+            byte[] bytes = new byte[Ip6Address.BYTE_LENGTH];
+            for (int i = 0; i < Long.BYTES; i++) {
+                bytes[Ip6Address.BYTE_LENGTH - 1 - i] = (byte) (dpid >>> (8 * i));
+            }
+            ipv6 = Ip6Address.valueOf(bytes);
+        }
+
+        /**
+         * Returns the exporter IPv4 address, the management address of the
+         * device, or 0.0.0.0 if unknown.
+         *
+         * @return exporter IPv4 address
+         */
+        public IpAddress ipv4() {
+            return ipv4;
+        }
+
+        /**
+         * Returns the exporter IPv6 address, made of the DPID in the low 64 bits.
+         *
+         * @return exporter IPv6 address
+         */
+        public Ip6Address ipv6() {
+            return ipv6;
+        }
+
+        /**
+         * Returns the DPID, used as observation domain ID.
+         *
+         * @return DPID value
+         */
+        public long dpid() {
+            return dpid;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.onosproject.ipfix.packet.MessageHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes IPFIX messages to local files (RFC 5655).
+ * <p>
+ * Messages are appended as encoded, back to back, so the files can be
+ * read by IPFIX file tools. A new file is started once the current one
+ * would exceed the maximum file size or has been open for the rotation
+ * interval. Each file is a transport session of its own and starts with
+ * the templates in use, so every file can be read on its own.
+ * </p>
+ */
+public class FileTransport implements IpfixTransport {
+
+    private static final int MAX_MESSAGE_LENGTH = 0xffff;
+    private static final String FILE_NAME = "ipfix-%1$tY%1$tm%1$td-%1$tH%1$tM%1$tS%1$tL-%2$d.ipfix";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final Path directory;
+    private final long maxFileSize;
+    private final long rotationInterval;
+    private Supplier<List<ByteBuffer>> templates = Collections::emptyList;
+    private FileChannel channel;
+    private Path file;
+    private long fileSize;
+    private long fileDeadline;
+    private long session;
+
+    /**
+     * Creates a file transport. The first file is created when the first
+     * message is written.
+     *
+     * @param directory directory of the IPFIX files
+     * @param maxFileSize size in bytes after which a new file is started
+     * @param rotationInterval time in milliseconds after which a new file is started
+     * @throws IOException if the directory cannot be created
+     */
+    public FileTransport(Path directory, long maxFileSize, long rotationInterval) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxFileSize = maxFileSize;
+        this.rotationInterval = rotationInterval;
+    }
+
+    @Override
+    public String collector() {
+        return "file:" + directory;
+    }
+
+    @Override
+    public int maxMessageLength() {
+        return MAX_MESSAGE_LENGTH;
+    }
+
+    @Override
+    public boolean reliable() {
+        return true;
+    }
+
+    @Override
+    public long session() {
+        return channel != null ? session : session + 1;
+    }
+
+    @Override
+    public boolean inSession() {
+        return channel != null;
+    }
+
+    @Override
+    public void templates(Supplier<List<ByteBuffer>> templates) {
+        this.templates = templates;
+    }
+
+    @Override
+    public boolean send(ByteBuffer message) {
+        try {
+            if (channel != null && fileSize + message.remaining() > maxFileSize) {
+                closeFile();
+            }
+            if (channel == null) {
+                openFile(message);
+            }
+            write(message);
+            return true;
+        } catch (IOException e) {
+            log.warn("IPFIX file {} write problem: {}", file, e.getMessage());
+            closeFile();
+            return false;
+        }
+    }
+
+    @Override
+    public void poll() {
+        if (channel != null && System.currentTimeMillis() >= fileDeadline) {
+            closeFile();
+        }
+    }
+
+    @Override
+    public long backlog() {
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        closeFile();
+    }
+
+    // Starts a file with the templates, numbered as the first message written to it
+    private void openFile(ByteBuffer first) throws IOException {
+        long now = System.currentTimeMillis();
+        file = directory.resolve(String.format(FILE_NAME, new Date(now), session + 1));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        session++;
+        fileSize = 0;
+        fileDeadline = now + rotationInterval;
+        for (ByteBuffer template : templates.get()) {
+            if (MessageHeader.observationDomainId(template) == MessageHeader.observationDomainId(first)) {
+                MessageHeader.sequenceNumber(template, MessageHeader.sequenceNumber(first));
+            }
+            write(template);
+        }
+        log.debug("IPFIX file {} started", file);
+    }
+
+    private void write(ByteBuffer message) throws IOException {
+        while (message.hasRemaining()) {
+            fileSize += channel.write(message);
+        }
+    }
+
+    private void closeFile() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("IPFIX file {} close problem: {}", file, e.getMessage());
+        }
+        channel = null;
+    }
+}
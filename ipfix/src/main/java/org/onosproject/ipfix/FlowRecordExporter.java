@@ -0,0 +1,377 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.IPv6;
+import org.onlab.packet.Ip6Address;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.MacAddress;
+import org.onosproject.ipfix.ExporterIdentityCache.ExporterIdentity;
+import org.onosproject.ipfix.packet.DataRecord;
+import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.criteria.EthCriterion;
+import org.onosproject.net.flow.criteria.EthTypeCriterion;
+import org.onosproject.net.flow.criteria.IPCriterion;
+import org.onosproject.net.flow.criteria.IPDscpCriterion;
+import org.onosproject.net.flow.criteria.IPEcnCriterion;
+import org.onosproject.net.flow.criteria.IPProtocolCriterion;
+import org.onosproject.net.flow.criteria.IPv6FlowLabelCriterion;
+import org.onosproject.net.flow.criteria.IcmpCodeCriterion;
+import org.onosproject.net.flow.criteria.IcmpTypeCriterion;
+import org.onosproject.net.flow.criteria.Icmpv6CodeCriterion;
+import org.onosproject.net.flow.criteria.Icmpv6TypeCriterion;
+import org.onosproject.net.flow.criteria.PortCriterion;
+import org.onosproject.net.flow.criteria.TcpPortCriterion;
+import org.onosproject.net.flow.criteria.UdpPortCriterion;
+import org.onosproject.net.flow.criteria.VlanIdCriterion;
+import org.onosproject.net.flow.criteria.Criterion.Type;
+import org.onosproject.net.flow.instructions.Instruction;
+import org.onosproject.net.flow.instructions.Instructions.OutputInstruction;
+
+import static org.onlab.util.Tools.groupedThreads;
+
+/**
+ * Builds and sends the IPFIX records of flows off the flow rule event thread.
+ * <p>
+ * Flow rule listeners only capture a snapshot of the flow entry and hand it
+ * over through a bounded ring buffer. A dedicated exporter thread takes the
+ * snapshots, extracts the matched fields, builds the data records and
+ * passes them to the IPFIX sender. When the buffer is full the snapshot is
+ * dropped and counted, so that export never holds up flow rule event
+ * dispatching.
+ * </p>
+ */
+public class FlowRecordExporter {
+
+    // Time the exporter thread waits for snapshots before checking for stop
+    private static final long POLL_INTERVAL = 100; //ms
+
+    private IpfixManager ipfixManager;
+    private final int queueSize;
+    private final BlockingQueue<FlowSnapshot> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final ExecutorService executor;
+    private volatile boolean stopped;
+
+    /**
+     * Creates and starts an exporter.
+     *
+     * @param ipfixManager ipfix manager instance
+     * @param queueSize maximum number of flows waiting to be exported
+     */
+    public FlowRecordExporter(IpfixManager ipfixManager, int queueSize) {
+        this.ipfixManager = ipfixManager;
+        this.queueSize = Math.max(1, queueSize);
+        this.queue = new ArrayBlockingQueue<>(this.queueSize);
+        this.executor = Executors.newSingleThreadExecutor(groupedThreads("onos/ipfix", "exporter"));
+        executor.execute(this::run);
+    }
+
+    /**
+     * Queues a flow for export with the statistics of the given period.
+     * Never blocks; the flow is dropped if the export queue is full.
+     *
+     * @param entry flow entry
+     * @param start start of the exported period in milliseconds since epoch
+     * @param end end of the exported period in milliseconds since epoch
+     * @param octets bytes matched by the flow during the period
+     * @param packets packets matched by the flow during the period
+     * @return true if the flow was queued
+     */
+    public boolean submit(FlowEntry entry, long start, long end, long octets, long packets) {
+        if (queue.offer(new FlowSnapshot(entry, start, end, octets, packets))) {
+            return true;
+        }
+        if (dropped.getAndIncrement() == 0) {
+            ipfixManager.log.warn("IPFIX export queue full, dropping flow records");
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of flows dropped because the export queue was full.
+     *
+     * @return dropped flow count
+     */
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the number of flows waiting to be exported.
+     *
+     * @return export queue depth
+     */
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the maximum number of flows waiting to be exported.
+     *
+     * @return export queue size
+     */
+    public int queueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Stops the exporter thread and moves the flows still queued and the
+     * dropped flow count to the exporter replacing this one. Flows that do
+     * not fit in the queue of the successor are counted as dropped.
+     *
+     * @param successor exporter replacing this one, already receiving new flows
+     */
+    public void handOver(FlowRecordExporter successor) {
+        stopped = true;
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(POLL_INTERVAL * 10, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<FlowSnapshot> flows = new ArrayList<>();
+        queue.drainTo(flows);
+        for (FlowSnapshot flow : flows) {
+            if (!successor.queue.offer(flow)) {
+                dropped.incrementAndGet();
+            }
+        }
+        successor.dropped.addAndGet(dropped.get());
+    }
+
+    /**
+     * Exports the flows still queued and stops the exporter thread.
+     */
+    public void close() {
+        stopped = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(POLL_INTERVAL * 10, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (dropped.get() > 0) {
+            ipfixManager.log.warn("IPFIX export queue dropped {} flow records", dropped.get());
+        }
+    }
+
+    private void run() {
+        while (!stopped || !queue.isEmpty()) {
+            try {
+                FlowSnapshot flow = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (flow != null) {
+                    export(flow);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                ipfixManager.log.warn("IPFIX flow record export problem: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Generates and sends the IPFIX record of a flow.
+     *
+     * @param flow flow entry snapshot to export
+     */
+    private void export(FlowSnapshot flow) {
+        FlowEntry entry = flow.entry;
+
+        //Log
+        ipfixManager.log.trace("Flow Removed from Reactive Forwarding, id={}, device={}, selector={}, treatment={}",
+                entry.id(), entry.deviceId(), entry.selector(), entry.treatment());
+
+        // Exporters
+        ExporterIdentity exporter = ipfixManager.exporterIdentities.get(entry.deviceId());
+        IpAddress exporterIpv4 = exporter.ipv4();
+        Ip6Address exporterIpv6 = exporter.ipv6();
+        long dpid = exporter.dpid();
+
+        // Timestamps, octets, packets
+        long start = flow.start;
+        long end = flow.end;
+        long octets = flow.octets;
+        long packets = flow.packets;
+
+        // Input and Output ports
+        PortCriterion portCrit = (PortCriterion) entry.selector().getCriterion(Type.IN_PORT);
+        int intfIn = (portCrit == null) ? 0 : (int) portCrit.port().toLong();
+        List<Instruction> instructions = entry.treatment().allInstructions();
+        int intfOut = 0;
+        for (Instruction instruction : instructions) {
+            if (instruction.type() == Instruction.Type.OUTPUT) {
+                OutputInstruction outputInstruction = (OutputInstruction) instruction;
+                intfOut = (outputInstruction == null) ? 0 : (int) outputInstruction.port().toLong();
+            }
+        }
+
+        // Ethernet MACs, Ethertype and VLAN
+        EthCriterion ethCrit;
+        ethCrit = (EthCriterion) entry.selector().getCriterion(Type.ETH_SRC);
+        MacAddress srcMac = (ethCrit == null) ? MacAddress.valueOf("00:00:00:00:00:00") : ethCrit.mac();
+        ethCrit = (EthCriterion) entry.selector().getCriterion(Type.ETH_DST);
+        MacAddress dstMac = (ethCrit == null) ? MacAddress.valueOf("00:00:00:00:00:00") : ethCrit.mac();
+
+        EthTypeCriterion ethTypeCrit = (EthTypeCriterion) entry.selector().getCriterion(Type.ETH_TYPE);
+        Short ethType = (ethTypeCrit == null) ? 0x0000 : ethTypeCrit.ethType().toShort();
+
+        VlanIdCriterion vlanCrit = (VlanIdCriterion) entry.selector().getCriterion(Type.VLAN_VID);
+        Short vlan = (vlanCrit == null) ? 0x0000 : vlanCrit.vlanId().toShort();
+
+        // IP Criterion check
+        IPCriterion srcIpCrit = (IPCriterion) entry.selector().getCriterion(Type.IPV4_SRC);
+        IPCriterion dstIpCrit = (IPCriterion) entry.selector().getCriterion(Type.IPV4_DST);
+        IPCriterion srcIp6Crit = (IPCriterion) entry.selector().getCriterion(Type.IPV6_SRC);
+        IPCriterion dstIp6Crit = (IPCriterion) entry.selector().getCriterion(Type.IPV6_DST);
+
+        // If IP criterions are null send MAC Data Record, else send IPv4 or IPv6 Data Record
+        if (srcIpCrit == null && dstIpCrit == null && srcIp6Crit == null && dstIp6Crit == null) {
+            DataRecordRfwdMac record = new DataRecordRfwdMac(
+                    exporterIpv4, exporterIpv6,
+                    start, end,
+                    octets, packets,
+                    intfIn, intfOut,
+                    srcMac, dstMac,
+                    ethType, vlan);
+            List<DataRecord> recordList = new ArrayList<DataRecord>();
+            recordList.add(record);
+            ipfixManager.sendRecords(DataRecordRfwdMac.getTemplateRecord(),
+                    recordList, dpid);
+        } else {
+            // Checking IPv4 and IPv6 criterions
+            IPProtocolCriterion protocolCrit = (IPProtocolCriterion) entry.selector().getCriterion(Type.IP_PROTO);
+            byte ipProtocol = (protocolCrit == null) ? (byte) 0xff : (byte) protocolCrit.protocol();
+
+            IPDscpCriterion dscpCrit = (IPDscpCriterion) entry.selector().getCriterion(Type.IP_DSCP);
+            byte dscp = (dscpCrit == null) ? 0x00 : dscpCrit.ipDscp();
+            IPEcnCriterion ecnCrit = (IPEcnCriterion) entry.selector().getCriterion(Type.IP_ECN);
+            byte ecn = (ecnCrit == null) ? 0x00 : ecnCrit.ipEcn();
+            byte tos = (byte) ((byte) (dscp << 2) | ecn);
+
+            IPv6FlowLabelCriterion flowLabelCrit =
+                    (IPv6FlowLabelCriterion) entry.selector().getCriterion(Type.IPV6_FLABEL);
+            int flowLabelIpv6 = (flowLabelCrit == null) ? 0 : flowLabelCrit.flowLabel();
+
+            int srcPort = 0;
+            int dstPort = 0;
+            if (ipProtocol == IPv4.PROTOCOL_TCP) {
+                TcpPortCriterion tcpCrit;
+                tcpCrit = (TcpPortCriterion) entry.selector().getCriterion(Type.TCP_SRC);
+                srcPort = (tcpCrit == null) ? 0 : tcpCrit.tcpPort().toInt();
+                tcpCrit = (TcpPortCriterion) entry.selector().getCriterion(Type.TCP_DST);
+                dstPort = (tcpCrit == null) ? 0 : tcpCrit.tcpPort().toInt();
+            } else if (ipProtocol == IPv4.PROTOCOL_UDP) {
+                UdpPortCriterion udpCrit;
+                udpCrit = (UdpPortCriterion) entry.selector().getCriterion(Type.UDP_SRC);
+                srcPort = (udpCrit == null) ? 0 : udpCrit.udpPort().toInt();
+                udpCrit = (UdpPortCriterion) entry.selector().getCriterion(Type.UDP_DST);
+                dstPort = (udpCrit == null) ? 0 : udpCrit.udpPort().toInt();
+            } else if (ipProtocol == IPv4.PROTOCOL_ICMP) {
+                IcmpTypeCriterion icmpTypeCrit = (IcmpTypeCriterion) entry.selector().getCriterion(Type.ICMPV4_TYPE);
+                Short icmpType = (icmpTypeCrit == null) ? 0 : icmpTypeCrit.icmpType();
+                IcmpCodeCriterion icmpCodeCrit = (IcmpCodeCriterion) entry.selector().getCriterion(Type.ICMPV4_CODE);
+                Short icmpCode = (icmpCodeCrit == null) ? 0 : icmpCodeCrit.icmpCode();
+                dstPort = 256 * icmpType + icmpCode;
+            } else if (ipProtocol == IPv6.PROTOCOL_ICMP6) {
+                Icmpv6TypeCriterion icmpv6TypeCrit =
+                        (Icmpv6TypeCriterion) entry.selector().getCriterion(Type.ICMPV6_TYPE);
+                Short icmpType = (icmpv6TypeCrit == null) ? 0 : icmpv6TypeCrit.icmpv6Type();
+                Icmpv6CodeCriterion icmpv6CodeCrit =
+                        (Icmpv6CodeCriterion) entry.selector().getCriterion(Type.ICMPV6_CODE);
+                Short icmpCode = (icmpv6CodeCrit == null) ? 0 : icmpv6CodeCrit.icmpv6Code();
+                dstPort = 256 * icmpType + icmpCode;
+            }
+            // If IPv4 than send IPv4 Data record
+            if ((srcIpCrit != null || dstIpCrit != null) && ethType == Ethernet.TYPE_IPV4) {
+                IpAddress srcIp = (srcIpCrit == null) ? IpAddress.valueOf(0) : srcIpCrit.ip().address();
+                IpAddress dstIp = (dstIpCrit == null) ? IpAddress.valueOf(0) : dstIpCrit.ip().address();
+                DataRecordRfwdIpv4 record = new DataRecordRfwdIpv4(
+                        exporterIpv4, exporterIpv6,
+                        start, end,
+                        octets, packets,
+                        intfIn, intfOut,
+                        srcMac, dstMac,
+                        ethType, vlan,
+                        srcIp, dstIp,
+                        ipProtocol, tos,
+                        (short) srcPort, (short) dstPort);
+                List<DataRecord> recordList = new ArrayList<DataRecord>();
+                recordList.add(record);
+                ipfixManager.sendRecords(DataRecordRfwdIpv4.getTemplateRecord(),
+                        recordList, dpid);
+            }
+            // If IPv6 than send IPv6 Data record
+            if ((srcIp6Crit != null || dstIp6Crit != null) && ethType == Ethernet.TYPE_IPV6) {
+                Ip6Address srcIp6 = (srcIp6Crit == null) ?
+                        Ip6Address.valueOf("0:0:0:0:0:0:0:0") : srcIp6Crit.ip().address().getIp6Address();
+                Ip6Address dstIp6 = (dstIp6Crit == null) ?
+                        Ip6Address.valueOf("0:0:0:0:0:0:0:0") : dstIp6Crit.ip().address().getIp6Address();
+                DataRecordRfwdIpv6 record = new DataRecordRfwdIpv6(
+                    exporterIpv4, exporterIpv6,
+                    start, end,
+                    octets, packets,
+                    intfIn, intfOut,
+                    srcMac, dstMac,
+                    ethType, vlan,
+                    srcIp6, dstIp6,
+                    flowLabelIpv6,
+                    ipProtocol, tos,
+                    (short) srcPort, (short) dstPort);
+                List<DataRecord> recordList = new ArrayList<DataRecord>();
+                recordList.add(record);
+                ipfixManager.sendRecords(DataRecordRfwdIpv6.getTemplateRecord(),
+                        recordList, dpid);
+            }
+        }
+    }
+
+    /**
+     * Flow entry and the statistics of the exported period, captured when
+     * the flow was handed over for export.
+     */
+    private static final class FlowSnapshot {
+        private final FlowEntry entry;
+        private final long start;
+        private final long end;
+        private final long octets;
+        private final long packets;
+
+        private FlowSnapshot(FlowEntry entry, long start, long end, long octets, long packets) {
+            this.entry = entry;
+            this.start = start;
+            this.end = end;
+            this.octets = octets;
+            this.packets = packets;
+        }
+    }
+}
@@ -18,7 +18,21 @@ package org.onosproject.ipfix;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static org.onlab.util.Tools.get;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
 import java.util.Dictionary;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -27,11 +41,14 @@ import org.apache.felix.scr.annotations.Modified;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
 import org.onlab.packet.IpAddress;
 import org.onosproject.app.ApplicationService;
 import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
+import org.onosproject.ipfix.packet.DataRecord;
+import org.onosproject.ipfix.packet.TemplateRecord;
 import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.flow.FlowRuleService;
 import org.onosproject.net.flowobjective.FlowObjectiveService;
@@ -44,12 +61,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
 /**
  * OpenFlow to IPFIX Manager.
  */
 @Component(immediate = true)
-public class IpfixManager {
+@Service
+public class IpfixManager implements IpfixService {
 
     protected final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -87,7 +109,14 @@ public class IpfixManager {
 
     protected FlowRemovedListener flowRemovedListener = null;
     protected PortStatsListener portStatsListener = null;
-    protected IpfixSender ipfixSender = null;
+    // One sender per collector, the list being replaced as a whole on configuration changes
+    protected volatile List<IpfixSender> ipfixSenders = ImmutableList.of();
+    // The same senders by their settings, so that a change only replaces the senders it affects
+    private Map<String, IpfixSender> sendersBySettings = ImmutableMap.of();
+    // Read by the flow rule and device event threads, replaced when the export queue size changes
+    protected volatile FlowRecordExporter flowRecordExporter = null;
+    protected ExporterIdentityCache exporterIdentities = null;
+    protected volatile ActiveTimeoutExporter activeTimeoutExporter = null;
 
     private static final boolean R_FWD_FLOWS_EXPORT = true;
     @Property(name = "ReactiveForwardingFlowExport", boolValue = R_FWD_FLOWS_EXPORT,
@@ -99,6 +128,18 @@ public class IpfixManager {
             label = "Switch Port Statistics exported over IPFIX")
     private boolean portStatsFlowExport = PORTSTATS_FLOWS_EXPORT;
 
+    private static final String EXPORTED_APPS = "org.onosproject.fwd";
+    @Property(name = "ExportedApps", value = EXPORTED_APPS,
+    label = "Comma separated names of the applications whose flows are exported, "
+            + "e.g. org.onosproject.fwd,org.onosproject.sdxl2; flows installed through "
+            + "intents belong to org.onosproject.net.intent")
+    private String exportedApps = EXPORTED_APPS;
+    // Short IDs of the exported applications, replaced rather than modified
+    private volatile BitSet exportedAppIds = new BitSet();
+    // Exported applications not registered yet, and the IDs already checked against them
+    private volatile Set<String> unresolvedApps = ImmutableSet.of();
+    private volatile BitSet checkedAppIds = new BitSet();
+
     private static final String COLLECTOR_ADDRESS = "127.0.0.1";
     @Property(name = "CollectorAddress", value = COLLECTOR_ADDRESS,
     label = "IPFIX Collector IP Address")
@@ -107,26 +148,97 @@ public class IpfixManager {
 
     private static final int COLLECTOR_PORT = 2055;
     @Property(name = "CollectorPort", intValue = COLLECTOR_PORT,
-    label = "IPFIX Collector UDP Port")
+    label = "IPFIX Collector UDP or TCP Port")
     protected static int collectorPort = COLLECTOR_PORT;
 
+    private static final String COLLECTORS = "";
+    @Property(name = "Collectors", value = COLLECTORS,
+    label = "Comma separated IPFIX Collectors as address[:port], [IPv6 address]:port for IPv6 with a port; "
+            + "CollectorAddress and CollectorPort if empty")
+    private String collectors = COLLECTORS;
+
+    private static final String TRANSPORT_UDP = "udp";
+    private static final String TRANSPORT_TCP = "tcp";
+    @Property(name = "Transport", value = TRANSPORT_UDP,
+    label = "Transport protocol towards the IPFIX Collectors, udp or tcp")
+    private String transportProtocol = TRANSPORT_UDP;
+
+    private static final int SPOOL_SIZE = 64;
+    @Property(name = "SpoolSize", intValue = SPOOL_SIZE,
+    label = "Megabytes of IPFIX messages kept per TCP Collector while it is unreachable")
+    private int spoolSize = SPOOL_SIZE;
+
+    private static final String CAPTURE_DIRECTORY = "";
+    @Property(name = "CaptureDirectory", value = CAPTURE_DIRECTORY,
+    label = "Directory IPFIX messages are also written to as IPFIX files; empty to disable")
+    private String captureDirectory = CAPTURE_DIRECTORY;
+
+    private static final int CAPTURE_FILE_SIZE = 100;
+    @Property(name = "CaptureFileSize", intValue = CAPTURE_FILE_SIZE,
+    label = "Megabytes after which a new IPFIX capture file is started")
+    private int captureFileSize = CAPTURE_FILE_SIZE;
+
+    private static final int CAPTURE_FILE_INTERVAL = 60;
+    @Property(name = "CaptureFileInterval", intValue = CAPTURE_FILE_INTERVAL,
+    label = "Minutes after which a new IPFIX capture file is started")
+    private int captureFileInterval = CAPTURE_FILE_INTERVAL;
+
+    private static final int SEND_QUEUE_SIZE = 1024;
+    @Property(name = "SendQueueSize", intValue = SEND_QUEUE_SIZE,
+    label = "Maximum number of record lists waiting to be sent to each IPFIX Collector")
+    private int sendQueueSize = SEND_QUEUE_SIZE;
+
+    private static final int PATH_MTU = 1500;
+    @Property(name = "PathMtu", intValue = PATH_MTU,
+    label = "Path MTU towards the IPFIX Collector, bounding the size of IPFIX messages")
+    private int pathMtu = PATH_MTU;
+
+    private static final int FLUSH_INTERVAL = 100;
+    @Property(name = "FlushInterval", intValue = FLUSH_INTERVAL,
+    label = "Maximum time in milliseconds IPFIX records are queued before being sent")
+    private int flushInterval = FLUSH_INTERVAL;
+
+    private static final int EXPORT_QUEUE_SIZE = 4096;
+    @Property(name = "ExportQueueSize", intValue = EXPORT_QUEUE_SIZE,
+    label = "Maximum number of flows waiting to be exported; further flows are dropped")
+    private int exportQueueSize = EXPORT_QUEUE_SIZE;
+
+    private static final int TEMPLATE_REFRESH_TIMEOUT = 60;
+    @Property(name = "TemplateRefreshTimeout", intValue = TEMPLATE_REFRESH_TIMEOUT,
+    label = "Seconds after which an IPFIX template is sent to the collector again; 0 to disable")
+    private int templateRefreshTimeout = TEMPLATE_REFRESH_TIMEOUT;
+
+    private static final int TEMPLATE_REFRESH_PACKETS = 0;
+    @Property(name = "TemplateRefreshPackets", intValue = TEMPLATE_REFRESH_PACKETS,
+    label = "Number of IPFIX messages after which a template is sent again; 0 to disable")
+    private int templateRefreshPackets = TEMPLATE_REFRESH_PACKETS;
+
+    private static final int ACTIVE_TIMEOUT = 0;
+    @Property(name = "ActiveTimeout", intValue = ACTIVE_TIMEOUT,
+    label = "Seconds after which records of long-lived flows are exported; 0 to disable")
+    private int activeTimeout = ACTIVE_TIMEOUT;
+
     @Activate
     public void activate(ComponentContext context) {
         appId = coreService.registerApplication("net.sdnmon.of2ipfix");
         cfgService.registerProperties(getClass());
         getProperties(context);
         collectorIp = IpAddress.valueOf(collectorAddress);
+        exporterIdentities = new ExporterIdentityCache(deviceService);
+        deviceService.addListener(exporterIdentities);
+        updateSenders();
+        flowRecordExporter = new FlowRecordExporter(this, exportQueueSize);
         if (reactiveForwardingFlowExport) {
             flowRemovedListener = new FlowRemovedListener(this);
             flowRuleService.addListener(flowRemovedListener);
         }
+        updateActiveTimeoutExporter();
         if (portStatsFlowExport) {
             portStatsListener = new PortStatsListener(this);
             deviceService.addListener(portStatsListener);
         }
-        ipfixSender = new IpfixSender(this);
-        log.info("Started. reactiveForwardingFlowExport={}, portStatsFlowExport={}, IPFIX collector: ip={}, port={}",
-                reactiveForwardingFlowExport, portStatsFlowExport, collectorAddress, collectorPort);
+        log.info("Started. reactiveForwardingFlowExport={}, portStatsFlowExport={}, IPFIX collectors: {}",
+                reactiveForwardingFlowExport, portStatsFlowExport, collectorNames());
     }
 
     @Deactivate
@@ -140,13 +252,25 @@ public class IpfixManager {
             deviceService.removeListener(portStatsListener);
             portStatsListener = null;
         }
-        ipfixSender = null;
+        if (activeTimeoutExporter != null) {
+            activeTimeoutExporter.close();
+            activeTimeoutExporter = null;
+        }
+        flowRecordExporter.close();
+        flowRecordExporter = null;
+        ipfixSenders.forEach(IpfixSender::close);
+        ipfixSenders = ImmutableList.of();
+        sendersBySettings = ImmutableMap.of();
+        deviceService.removeListener(exporterIdentities);
+        exporterIdentities = null;
         log.info("Stopped");
     }
 
     @Modified
     public void modified(ComponentContext context) {
         getProperties(context);
+        updateFlowRecordExporter();
+        updateSenders();
         if (reactiveForwardingFlowExport) {
             if (flowRemovedListener == null) {
                 flowRemovedListener = new FlowRemovedListener(this);
@@ -157,6 +281,7 @@ public class IpfixManager {
             flowRuleService.removeListener(flowRemovedListener);
             flowRemovedListener = null;
         }
+        updateActiveTimeoutExporter();
         if (portStatsFlowExport) {
             if (portStatsListener == null) {
                 portStatsListener = new PortStatsListener(this);
@@ -167,8 +292,226 @@ public class IpfixManager {
             deviceService.removeListener(portStatsListener);
             portStatsListener = null;
         }
-        log.info("Modified. reactiveForwardingFlowExport={}, portStatsFlowExport={}, IPFIX collector: ip={}, port={}",
-                reactiveForwardingFlowExport, portStatsFlowExport, collectorAddress, collectorPort);
+        log.info("Modified. reactiveForwardingFlowExport={}, portStatsFlowExport={}, IPFIX collectors: {}",
+                reactiveForwardingFlowExport, portStatsFlowExport, collectorNames());
+    }
+
+    // Replaces the exporter only when its queue size changes, handing the queued flows over to the new one
+    private void updateFlowRecordExporter() {
+        FlowRecordExporter oldExporter = flowRecordExporter;
+        if (oldExporter.queueSize() == Math.max(1, exportQueueSize)) {
+            return;
+        }
+        flowRecordExporter = new FlowRecordExporter(this, exportQueueSize);
+        oldExporter.handOver(flowRecordExporter);
+    }
+
+    // Keeps the exporter across configuration changes not affecting it, as it holds the counters last exported
+    private void updateActiveTimeoutExporter() {
+        boolean enabled = reactiveForwardingFlowExport && activeTimeout > 0;
+        if (activeTimeoutExporter != null && (!enabled || activeTimeoutExporter.activeTimeout() != activeTimeout)) {
+            activeTimeoutExporter.close();
+            activeTimeoutExporter = null;
+        }
+        if (enabled && activeTimeoutExporter == null) {
+            activeTimeoutExporter = new ActiveTimeoutExporter(this, activeTimeout);
+        }
+    }
+
+    /**
+     * Returns whether the flows of an application are exported.
+     *
+     * @param appId short application ID of the flows
+     * @return true if the flows are exported
+     */
+    protected boolean isExportedApp(short appId) {
+        int id = appId & 0xffff;
+        if (exportedAppIds.get(id)) {
+            return true;
+        }
+        if (unresolvedApps.isEmpty() || checkedAppIds.get(id)) {
+            return false;
+        }
+        return resolveExportedApp(id);
+    }
+
+    private synchronized void resolveExportedApps() {
+        BitSet appIds = new BitSet();
+        ImmutableSet.Builder<String> unresolved = ImmutableSet.builder();
+        for (String name : exportedApps.split(",")) {
+            if (name.trim().isEmpty()) {
+                continue;
+            }
+            ApplicationId exported = coreService.getAppId(name.trim());
+            if (exported != null) {
+                appIds.set(exported.id() & 0xffff);
+            } else {
+                log.warn("Application {} not registered, its flows are exported once it is", name.trim());
+                unresolved.add(name.trim());
+            }
+        }
+        exportedAppIds = appIds;
+        unresolvedApps = unresolved.build();
+        checkedAppIds = new BitSet();
+    }
+
+    // Applications registering after the configuration are looked up on their first flow
+    private synchronized boolean resolveExportedApp(int id) {
+        if (exportedAppIds.get(id)) {
+            return true;
+        }
+        BitSet checked = (BitSet) checkedAppIds.clone();
+        checked.set(id);
+        checkedAppIds = checked;
+        ApplicationId app = coreService.getAppId((short) id);
+        if (app == null || !unresolvedApps.contains(app.name())) {
+            return false;
+        }
+        BitSet appIds = (BitSet) exportedAppIds.clone();
+        appIds.set(id);
+        exportedAppIds = appIds;
+        unresolvedApps = ImmutableSet.copyOf(Sets.difference(unresolvedApps, ImmutableSet.of(app.name())));
+        log.info("Application {} registered, exporting its flows", app.name());
+        return true;
+    }
+
+    /**
+     * Queues a list of data records for sending to every collector.
+     *
+     * @param tr Template Record of the records
+     * @param recordsList List of corresponding IPFIX records to send
+     * @param oid observation domain ID
+     */
+    protected void sendRecords(TemplateRecord tr, List<DataRecord> recordsList, long oid) {
+        for (IpfixSender sender : ipfixSenders) {
+            sender.sendRecords(tr, recordsList, oid);
+        }
+    }
+
+    @Override
+    public List<CollectorStatistics> collectorStatistics() {
+        ImmutableList.Builder<CollectorStatistics> statistics = ImmutableList.builder();
+        ipfixSenders.forEach(sender -> statistics.add(sender.statistics()));
+        return statistics.build();
+    }
+
+    @Override
+    public long flowsDropped() {
+        FlowRecordExporter exporter = flowRecordExporter;
+        return exporter == null ? 0 : exporter.droppedCount();
+    }
+
+    @Override
+    public int flowQueueDepth() {
+        FlowRecordExporter exporter = flowRecordExporter;
+        return exporter == null ? 0 : exporter.queueDepth();
+    }
+
+    private List<String> collectorNames() {
+        return ipfixSenders.stream().map(sender -> sender.statistics().collector()).collect(Collectors.toList());
+    }
+
+    /**
+     * Sets up the senders of the configured collectors. Senders whose
+     * settings did not change are kept along with their sequence numbers
+     * and spooled messages; the others are closed once replaced.
+     */
+    private void updateSenders() {
+        Map<String, IpfixSender> current = sendersBySettings;
+        Map<String, IpfixSender> updated = new LinkedHashMap<>();
+        String senderSettings = flushInterval + "/" + templateRefreshTimeout + "/"
+                + templateRefreshPackets + "/" + sendQueueSize;
+        if (!isNullOrEmpty(captureDirectory.trim())) {
+            String settings = "file:" + captureDirectory.trim() + "/" + captureFileSize + "/"
+                    + captureFileInterval + "/" + senderSettings;
+            addSender(updated, current, settings, () -> {
+                try {
+                    return newSender(new FileTransport(Paths.get(captureDirectory.trim()),
+                                                       captureFileSize * 1024L * 1024L,
+                                                       TimeUnit.MINUTES.toMillis(captureFileInterval)));
+                } catch (IOException | InvalidPathException e) {
+                    log.warn("IPFIX capture directory {} problem: {}", captureDirectory, e.getMessage());
+                    return null;
+                }
+            });
+        }
+        if (isNullOrEmpty(collectors.trim())) {
+            addSender(updated, current, collectorSettings(collectorIp, collectorPort) + "/" + senderSettings,
+                      () -> newSender(collectorIp, collectorPort));
+        }
+        for (String collector : collectors.split(",")) {
+            String address = collector.trim();
+            int port = collectorPort;
+            if (address.isEmpty()) {
+                continue;
+            }
+            try {
+                int portSeparator = address.startsWith("[") ? address.indexOf("]:") + 1 : address.indexOf(':');
+                if (portSeparator > 0 && portSeparator == address.lastIndexOf(':')) {
+                    port = Integer.parseInt(address.substring(portSeparator + 1));
+                    address = address.substring(0, portSeparator);
+                }
+                address = address.startsWith("[") ? address.substring(1, address.length() - 1) : address;
+                IpAddress ip = IpAddress.valueOf(address);
+                int ipPort = port;
+                addSender(updated, current, collectorSettings(ip, ipPort) + "/" + senderSettings,
+                          () -> newSender(ip, ipPort));
+            } catch (IllegalArgumentException e) {
+                log.info("Collectors Format Exception: {}", collector);
+            }
+        }
+        sendersBySettings = ImmutableMap.copyOf(updated);
+        ipfixSenders = ImmutableList.copyOf(updated.values());
+        current.forEach((settings, sender) -> {
+            if (updated.get(settings) != sender) {
+                sender.close();
+            }
+        });
+    }
+
+    private void addSender(Map<String, IpfixSender> updated, Map<String, IpfixSender> current,
+                           String settings, Supplier<IpfixSender> factory) {
+        if (updated.containsKey(settings)) {
+            return;
+        }
+        IpfixSender sender = current.containsKey(settings) ? current.get(settings) : factory.get();
+        if (sender != null) {
+            updated.put(settings, sender);
+        }
+    }
+
+    // Settings of the transport to a collector, as used by newSender
+    private String collectorSettings(IpAddress collector, int port) {
+        if (TRANSPORT_TCP.equalsIgnoreCase(transportProtocol)) {
+            return "tcp:" + collector + ":" + port + "/" + spoolSize;
+        }
+        return "udp:" + collector + ":" + port + "/" + pathMtu;
+    }
+
+    private IpfixSender newSender(IpAddress collector, int port) {
+        IpfixTransport transport;
+        try {
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getByAddress(collector.toOctets()), port);
+            if (TRANSPORT_TCP.equalsIgnoreCase(transportProtocol)) {
+                // Spool files are kept in the Karaf data directory
+                Path spoolDirectory = Paths.get(System.getProperty("karaf.data", System.getProperty("java.io.tmpdir")),
+                                                "ipfix");
+                int spoolBytes = (int) Math.min(Integer.MAX_VALUE, spoolSize * 1024L * 1024L);
+                transport = new TcpTransport(address, spoolDirectory, spoolBytes);
+            } else {
+                transport = new UdpTransport(address, pathMtu);
+            }
+        } catch (IOException e) {
+            log.warn("IPFIX Collector {} transport problem: {}", collector, e.getMessage());
+            return null;
+        }
+        return newSender(transport);
+    }
+
+    private IpfixSender newSender(IpfixTransport transport) {
+        return new IpfixSender(this, transport, flushInterval,
+                               TimeUnit.SECONDS.toMillis(templateRefreshTimeout), templateRefreshPackets,
+                               sendQueueSize);
     }
 
     public void getProperties(ComponentContext context) {
@@ -182,6 +525,103 @@ public class IpfixManager {
             log.info("CollectorPort Format Exception");
         }
 
+        // parse PathMtu Property
+        s = get(properties, "PathMtu");
+        try {
+            pathMtu = isNullOrEmpty(s) ? pathMtu : Integer.parseInt(s.trim());
+        } catch (NumberFormatException | ClassCastException e) {
+            log.info("PathMtu Format Exception");
+        }
+
+        // parse FlushInterval Property
+        s = get(properties, "FlushInterval");
+        try {
+            flushInterval = isNullOrEmpty(s) ? flushInterval : Integer.parseInt(s.trim());
+        } catch (NumberFormatException | ClassCastException e) {
+            log.info("FlushInterval Format Exception");
+        }
+
+        // parse ExportQueueSize Property
+        s = get(properties, "ExportQueueSize");
+        try {
+            exportQueueSize = isNullOrEmpty(s) ? exportQueueSize : Integer.parseInt(s.trim());
+        } catch (NumberFormatException | ClassCastException e) {
+            log.info("ExportQueueSize Format Exception");
+        }
+
+        // parse TemplateRefreshTimeout Property
+        s = get(properties, "TemplateRefreshTimeout");
+        try {
+            templateRefreshTimeout = isNullOrEmpty(s) ? templateRefreshTimeout : Integer.parseInt(s.trim());
+        } catch (NumberFormatException | ClassCastException e) {
+            log.info("TemplateRefreshTimeout Format Exception");
+        }
+
+        // parse TemplateRefreshPackets Property
+        s = get(properties, "TemplateRefreshPackets");
+        try {
+            templateRefreshPackets = isNullOrEmpty(s) ? templateRefreshPackets : Integer.parseInt(s.trim());
+        } catch (NumberFormatException | ClassCastException e) {
+            log.info("TemplateRefreshPackets Format Exception");
+        }
+
+        // parse ActiveTimeout Property
+        s = get(properties, "ActiveTimeout");
+        try {
+            activeTimeout = isNullOrEmpty(s) ? activeTimeout : Integer.parseInt(s.trim());
+        } catch (NumberFormatException | ClassCastException e) {
+            log.info("ActiveTimeout Format Exception");
+        }
+
+        // parse ExportedApps Property
+        s = get(properties, "ExportedApps");
+        exportedApps = s == null ? exportedApps : s;
+        resolveExportedApps();
+
+        // parse SendQueueSize Property
+        s = get(properties, "SendQueueSize");
+        try {
+            sendQueueSize = isNullOrEmpty(s) ? sendQueueSize : Integer.parseInt(s.trim());
+        } catch (NumberFormatException | ClassCastException e) {
+            log.info("SendQueueSize Format Exception");
+        }
+
+        // parse Transport Property
+        s = get(properties, "Transport");
+        transportProtocol = isNullOrEmpty(s) ? transportProtocol : s.trim();
+
+        // parse SpoolSize Property
+        s = get(properties, "SpoolSize");
+        try {
+            spoolSize = isNullOrEmpty(s) ? spoolSize : Integer.parseInt(s.trim());
+        } catch (NumberFormatException | ClassCastException e) {
+            log.info("SpoolSize Format Exception");
+        }
+
+        // parse CaptureDirectory Property
+        s = get(properties, "CaptureDirectory");
+        captureDirectory = s == null ? captureDirectory : s;
+
+        // parse CaptureFileSize Property
+        s = get(properties, "CaptureFileSize");
+        try {
+            captureFileSize = isNullOrEmpty(s) ? captureFileSize : Integer.parseInt(s.trim());
+        } catch (NumberFormatException | ClassCastException e) {
+            log.info("CaptureFileSize Format Exception");
+        }
+
+        // parse CaptureFileInterval Property
+        s = get(properties, "CaptureFileInterval");
+        try {
+            captureFileInterval = isNullOrEmpty(s) ? captureFileInterval : Integer.parseInt(s.trim());
+        } catch (NumberFormatException | ClassCastException e) {
+            log.info("CaptureFileInterval Format Exception");
+        }
+
+        // parse Collectors Property
+        s = get(properties, "Collectors");
+        collectors = s == null ? collectors : s;
+
         // parse CollectorAddress Property
         s = get(properties, "CollectorAddress");
         collectorAddress = isNullOrEmpty(s) ? collectorAddress : s;
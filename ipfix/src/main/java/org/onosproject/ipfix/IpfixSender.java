@@ -15,119 +15,370 @@
  */
 package org.onosproject.ipfix;
 
-import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
-import java.net.SocketException;
-import java.net.UnknownHostException;
-import java.util.Date;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.onlab.packet.IpAddress;
 import org.onosproject.ipfix.packet.DataRecord;
 import org.onosproject.ipfix.packet.HeaderException;
-import org.onosproject.ipfix.packet.MessageHeader;
-import org.onosproject.ipfix.packet.SetHeader;
+import org.onosproject.ipfix.packet.MessageEncoder;
 import org.onosproject.ipfix.packet.TemplateRecord;
 
+import static org.onlab.util.Tools.groupedThreads;
+
 /**
- * Sends IPFIX records.
+ * Sends IPFIX records to one collector.
+ * <p>
+ * Records are not sent one message per call. They are handed over through
+ * a bounded queue to the sender thread of the collector, which queues them
+ * per observation domain and template and packs the records of a queue
+ * into a single IPFIX message until it would exceed the path MTU. A queue
+ * is sent when it is full and all queues are flushed periodically, so that
+ * bursts of records cost one datagram per full message rather than one per
+ * record. Messages are encoded into one reusable buffer and handed to the
+ * transport of the collector. As each collector has its own queue, thread
+ * and buffer, a slow collector only drops its own records.
+ * </p>
+ * <p>
+ * Templates are not repeated in every message. As the collector may miss
+ * or forget them over UDP (RFC 7011 section 8.4), the template of a queue
+ * is sent with its first message and then again once the template refresh
+ * timeout has elapsed or the configured number of messages has been sent
+ * without it. Over a reliable transport, templates are sent once per
+ * transport session: with the first message of a queue, or ahead of
+ * everything else when a session starts. Messages queued by the
+ * transport while no session is in progress leave their templates to
+ * the start of the next session, so that no data set of the session
+ * precedes its template (RFC 7011 section 8).
+ * </p>
  */
 public class IpfixSender {
 
-    private static int seqNumber;
-    private static final int IPFIX_VERSION = 10;
     private static final int TEMPLATE_SETID = 2;
+    private static final int MESSAGE_HEADER_LENGTH = 16;
+    private static final int MAX_MESSAGE_LENGTH = 0xffff;
+    private static final int SET_HEADER_LENGTH = 4;
+    // Time to wait for the queued records to be sent when closing
+    private static final long CLOSE_TIMEOUT = 1000; //ms
 
     private IpfixManager ipfixManager;
+    private final IpfixTransport transport;
+    private final int maxMessageLength;
+    private final long flushInterval;
+    private final long templateRefreshTimeout;
+    private final int templateRefreshPackets;
+    // Direct, so that the channel sends the encoded message without copying it
+    private final MessageEncoder encoder = new MessageEncoder(MAX_MESSAGE_LENGTH, true);
+    // Encodes the template messages starting a transport session, while a data message may be pending
+    private final MessageEncoder templateEncoder = new MessageEncoder(MAX_MESSAGE_LENGTH, false);
+    private final BlockingQueue<RecordBatch> queue;
+    private final ExecutorService executor;
+    private volatile boolean stopped;
+
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong recordsSent = new AtomicLong();
+    private final AtomicLong recordsDropped = new AtomicLong();
+
+    // Data records sent so far by observation domain, the sequence number of the next message
+    private final ConcurrentMap<Long, AtomicLong> sequenceNumbers = new ConcurrentHashMap<>();
+    // Records waiting to be sent by observation domain and template ID, only used by the sender thread
+    private final Map<Long, Map<Integer, PendingSet>> pending = new HashMap<>();
 
     /**
-     * Creates instance of the IPFIX Sender.
+     * Creates and starts the IPFIX Sender of a collector.
      *
      * @param ipfixManager IpfixManager instance
+     * @param transport transport to the collector
+     * @param flushInterval maximum time in milliseconds records are queued
+     * @param templateRefreshTimeout time in milliseconds after which a template
+     *                               is sent again; 0 to disable
+     * @param templateRefreshPackets number of messages after which a template is
+     *                               sent again; 0 to disable
+     * @param queueSize maximum number of record lists waiting for the sender thread
      */
-    public IpfixSender(IpfixManager ipfixManager) {
+    public IpfixSender(IpfixManager ipfixManager, IpfixTransport transport, long flushInterval,
+                       long templateRefreshTimeout, int templateRefreshPackets, int queueSize) {
         this.ipfixManager = ipfixManager;
-        seqNumber = 0;
+        this.transport = transport;
+        this.maxMessageLength = transport.maxMessageLength();
+        this.flushInterval = Math.max(1, flushInterval);
+        this.templateRefreshTimeout = templateRefreshTimeout;
+        this.templateRefreshPackets = templateRefreshPackets;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        transport.templates(this::templateMessages);
+        executor = Executors.newSingleThreadExecutor(groupedThreads("onos/ipfix", "sender-%d"));
+        executor.execute(this::run);
     }
 
     /**
-     * Send IPFIX Template and coresponding list of data records.
+     * Queues a list of data records for sending along with their template.
+     * Records of the same template and observation domain are sent together
+     * once enough of them are queued or the flush interval elapses. Never
+     * blocks; the records are dropped if the queue of the collector is full.
+     * The records and the list must not be modified afterwards.
      *
-     * @param tr Template Record to send
+     * @param tr Template Record of the records
      * @param recordsList List of corresponding IPFIX records to send
      * @param oid observation domain ID
-     * @param collector IPFIX collector IP address
-     * @param port IPFIX collector UDP port
+     * @return true if the records were queued
      */
-    public void sendRecords(TemplateRecord tr, List<DataRecord> recordsList,
-                             long oid, IpAddress collector, int port) {
-
-        MessageHeader mh = new MessageHeader();
-        mh.setVersionNumber(IPFIX_VERSION);
-        mh.setObservationDomainID(oid);
-        seqNumber++;
-        mh.setSequenceNumber(seqNumber);
-        mh.setExportTime(new Date());
-
-        // Set header for the template
-        SetHeader shTemplate = new SetHeader();
-        shTemplate.setSetID(TEMPLATE_SETID);
-
-        // Add template record
-        List<TemplateRecord> trTemp = shTemplate.getTemplateRecords();
-        trTemp.add(tr);
-        shTemplate.setTemplateRecords(trTemp);
-
-        // Set header for the Data Records
-        SetHeader shData = new SetHeader();
-        shData.setSetID(tr.getTemplateID());
-
-        // Add Data records from the recordsList
-        List<DataRecord> drTemp = shData.getDataRecords();
-        for (DataRecord tempRecord : recordsList) {
-            drTemp.add(tempRecord);
-        }
-        shData.setDataRecords(drTemp);
-
-        // Make Set Headers from Template and Data
-        List<SetHeader> shTemp = mh.getSetHeaders();
-        shTemp.add(shTemplate);
-        shTemp.add(shData);
-        mh.setSetHeaders(shTemp);
-
-        // socket handling and IPFIX UDP packet sending
-        InetAddress collectorAddress = null;
-        try {
-            collectorAddress = InetAddress.getByAddress(collector.toOctets());
-        } catch (UnknownHostException e) {
-            ipfixManager.log.warn("IPFIX Collector IP address format problem: " + e.getMessage());
-            return;
+    public boolean sendRecords(TemplateRecord tr, List<DataRecord> recordsList, long oid) {
+        if (queue.offer(new RecordBatch(tr, recordsList, oid))) {
+            return true;
         }
-        DatagramSocket dSocket = null;
-        DatagramPacket dPacket = null;
+        if (recordsDropped.getAndAdd(recordsList.size()) == 0) {
+            ipfixManager.log.warn("IPFIX send queue of collector {} full, dropping records", transport.collector());
+        }
+        return false;
+    }
+
+    /**
+     * Returns the counters of this sender.
+     *
+     * @return collector statistics
+     */
+    public CollectorStatistics statistics() {
+        return new CollectorStatistics(transport.collector(), messagesSent.get(), recordsSent.get(),
+                                       recordsDropped.get(), queue.size(), transport.backlog());
+    }
+
+    /**
+     * Sends the queued records and releases the transport.
+     */
+    public void close() {
+        stopped = true;
+        executor.shutdown();
         try {
-            dSocket = new DatagramSocket();
-        } catch (SocketException e) {
-            ipfixManager.log.warn("IPFIX datagram socket problem: " + e.getMessage());
-            return;
+            if (!executor.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
         }
+        transport.close();
+    }
+
+    private void run() {
+        long nextFlush = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        while (!stopped || !queue.isEmpty()) {
+            try {
+                long wait = nextFlush - System.nanoTime();
+                if (wait <= 0) {
+                    flush();
+                    transport.poll();
+                    nextFlush = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+                    continue;
+                }
+                RecordBatch batch = queue.poll(wait, TimeUnit.NANOSECONDS);
+                if (batch != null) {
+                    add(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                ipfixManager.log.warn("IPFIX send problem: " + e.getMessage());
+            }
+        }
+        flush();
+    }
+
+    private void add(RecordBatch batch) {
+        PendingSet set = pending.computeIfAbsent(batch.oid, k -> new HashMap<>())
+                .computeIfAbsent(batch.template.getTemplateID(), k -> new PendingSet(batch.template, batch.oid));
+        for (DataRecord record : batch.records) {
+            if (!set.records.isEmpty() && set.length + record.getLength() > maxMessageLength) {
+                send(set);
+            }
+            set.add(record);
+        }
+    }
+
+    /**
+     * Sends all queued records.
+     */
+    private void flush() {
+        for (Map<Integer, PendingSet> sets : pending.values()) {
+            for (PendingSet set : sets.values()) {
+                if (!set.records.isEmpty()) {
+                    send(set);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the queued records of a template and observation domain in one
+     * IPFIX message, along with the template if it is due, and empties the
+     * queue.
+     *
+     * @param set queued records
+     */
+    private void send(PendingSet set) {
+        ByteBuffer message;
+        boolean withTemplate;
+        int records = set.records.size();
         try {
-            dPacket = new DatagramPacket(mh.getBytes(), mh.getBytes().length, collectorAddress, port);
-        } catch (HeaderException e) {
+            long now = System.currentTimeMillis();
+            encoder.startMessage(now, nextSequenceNumber(set.oid, records), set.oid);
+            withTemplate = templateDue(set, now);
+            if (withTemplate) {
+                encoder.startSet(TEMPLATE_SETID).write(set.template);
+                set.templateSent(now, transport.session());
+            } else {
+                set.messagesWithoutTemplate++;
+            }
+            encoder.startSet(set.template.getTemplateID());
+            for (DataRecord record : set.records) {
+                encoder.write(record);
+            }
+            message = encoder.finishMessage();
+        } catch (HeaderException | BufferOverflowException e) {
             ipfixManager.log.warn("IPFIX datagram packet problem: " + e.getMessage());
-            dSocket.close();
+            recordsDropped.addAndGet(records);
             return;
+        } finally {
+            set.clear();
         }
-        try {
-            dSocket.send(dPacket);
-        } catch (IOException e) {
-            ipfixManager.log.warn("IPFIX packet send IO exception: " + e.getMessage());
-            dSocket.close();
-            return;
+        if (transport.send(message)) {
+            messagesSent.incrementAndGet();
+            recordsSent.addAndGet(records);
+        } else {
+            recordsDropped.addAndGet(records);
+            if (withTemplate) {
+                set.templateNotSent();
+            }
+        }
+    }
+
+    private boolean templateDue(PendingSet set, long now) {
+        if (transport.reliable()) {
+            return transport.inSession() && set.templateSession != transport.session();
         }
-        dSocket.close();
+        return set.templateDue(now, templateRefreshTimeout, templateRefreshPackets);
+    }
+
+    /**
+     * Encodes one message per known template and observation domain, sent
+     * first on a new transport session.
+     *
+     * @return template messages
+     */
+    private List<ByteBuffer> templateMessages() {
+        List<ByteBuffer> messages = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Map<Integer, PendingSet> sets : pending.values()) {
+            for (PendingSet set : sets.values()) {
+                if (set.templateSession == transport.session()) {
+                    // Already sent on the new session
+                    continue;
+                }
+                try {
+                    ByteBuffer message = templateEncoder
+                            .startMessage(now, nextSequenceNumber(set.oid, 0), set.oid)
+                            .startSet(TEMPLATE_SETID)
+                            .write(set.template)
+                            .finishMessage();
+                    ByteBuffer copy = ByteBuffer.allocate(message.remaining());
+                    copy.put(message);
+                    copy.flip();
+                    messages.add(copy);
+                    set.templateSent(now, transport.session());
+                } catch (HeaderException | BufferOverflowException e) {
+                    ipfixManager.log.warn("IPFIX template packet problem: " + e.getMessage());
+                }
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Returns the sequence number of a message of an observation domain and
+     * accounts for its data records. As defined in RFC 7011 the sequence
+     * number is the number of data records sent in the domain before the
+     * message, modulo 2^32, so a collector can tell how many were lost.
+     *
+     * @param oid observation domain ID
+     * @param records number of data records in the message
+     * @return sequence number of the message
+     */
+    private long nextSequenceNumber(long oid, int records) {
+        return sequenceNumbers.computeIfAbsent(oid, k -> new AtomicLong()).getAndAdd(records) & 0xffffffffL;
     }
 
+    /**
+     * Records handed over to the sender thread.
+     */
+    private static final class RecordBatch {
+        private final TemplateRecord template;
+        private final List<DataRecord> records;
+        private final long oid;
+
+        private RecordBatch(TemplateRecord template, List<DataRecord> records, long oid) {
+            this.template = template;
+            this.records = records;
+            this.oid = oid;
+        }
+    }
+
+    /**
+     * Records of one template and observation domain waiting to be sent.
+     */
+    private static final class PendingSet {
+        private final TemplateRecord template;
+        private final long oid;
+        private final List<DataRecord> records = new ArrayList<>();
+        // Length of the IPFIX message carrying the queued records and the template
+        private int length;
+        // Time the template was last sent, negative if never
+        private long templateSentMillis = -1;
+        private int messagesWithoutTemplate;
+        // Transport session the template was last sent on, for reliable transports
+        private long templateSession = -1;
+
+        private PendingSet(TemplateRecord template, long oid) {
+            this.template = template;
+            this.oid = oid;
+            clear();
+        }
+
+        private void add(DataRecord record) {
+            records.add(record);
+            length += record.getLength();
+        }
+
+        private boolean templateDue(long now, long refreshTimeout, int refreshPackets) {
+            return templateSentMillis < 0
+                    || (refreshTimeout > 0 && now - templateSentMillis >= refreshTimeout)
+                    || (refreshPackets > 0 && messagesWithoutTemplate >= refreshPackets);
+        }
+
+        private void templateSent(long now, long session) {
+            templateSentMillis = now;
+            templateSession = session;
+            messagesWithoutTemplate = 0;
+        }
+
+        private void templateNotSent() {
+            templateSentMillis = -1;
+            templateSession = -1;
+        }
+
+        private void clear() {
+            records.clear();
+            length = MESSAGE_HEADER_LENGTH + SET_HEADER_LENGTH + template.getLength() + SET_HEADER_LENGTH;
+        }
+    }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix;
+
+import java.util.List;
+
+/**
+ * Service for monitoring the export of flow statistics over IPFIX.
+ */
+public interface IpfixService {
+
+    /**
+     * Returns the export counters of each configured collector.
+     *
+     * @return collector statistics
+     */
+    List<CollectorStatistics> collectorStatistics();
+
+    /**
+     * Returns the number of flows dropped because the flow export queue was full.
+     *
+     * @return dropped flow count
+     */
+    long flowsDropped();
+
+    /**
+     * Returns the number of flows waiting to be turned into records.
+     *
+     * @return flow export queue depth
+     */
+    int flowQueueDepth();
+}
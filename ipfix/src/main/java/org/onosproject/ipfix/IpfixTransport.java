@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Transport of IPFIX messages to one collector.
+ * <p>
+ * Transports are only used by the sender thread of their collector.
+ * </p>
+ */
+public interface IpfixTransport {
+
+    /**
+     * Returns the collector address.
+     *
+     * @return collector address
+     */
+    String collector();
+
+    /**
+     * Returns the maximum length of the IPFIX messages sent over this transport.
+     *
+     * @return maximum message length in bytes
+     */
+    int maxMessageLength();
+
+    /**
+     * Returns whether messages are delivered reliably, in which case
+     * templates are sent once per transport session and never refreshed.
+     *
+     * @return true for a reliable transport
+     */
+    boolean reliable();
+
+    /**
+     * Returns the current transport session. After a transport session is
+     * lost, this is the session that the next connection will start.
+     *
+     * @return transport session number
+     */
+    long session();
+
+    /**
+     * Returns whether a transport session is in progress. Messages sent
+     * while none is are queued for the next session, which starts with the
+     * template messages, so they need not carry their templates.
+     *
+     * @return true if messages are sent on the current session
+     */
+    boolean inSession();
+
+    /**
+     * Sets the source of the messages sent first on every new transport
+     * session of a reliable transport, carrying the templates in use. The
+     * transport renumbers them as the first message of their observation
+     * domain it sends on the session, so that sequence numbers never go back
+     * when queued messages follow them.
+     *
+     * @param templates supplier of the template messages
+     */
+    void templates(Supplier<List<ByteBuffer>> templates);
+
+    /**
+     * Sends or queues an IPFIX message.
+     *
+     * @param message encoded message, from its position to its limit
+     * @return false if the message was dropped
+     */
+    boolean send(ByteBuffer message);
+
+    /**
+     * Performs periodic work, such as reconnecting and sending queued messages.
+     */
+    void poll();
+
+    /**
+     * Returns the number of bytes queued waiting for the collector.
+     *
+     * @return backlog in bytes
+     */
+    long backlog();
+
+    /**
+     * Releases the transport.
+     */
+    void close();
+}
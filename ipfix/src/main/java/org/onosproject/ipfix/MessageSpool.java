@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounded queue of IPFIX messages held in a memory-mapped file.
+ * <p>
+ * Messages are stored back to back in a ring buffer, and message
+ * boundaries are taken from the length field of the message headers. The
+ * message at the head may have been partly written to the collector; if
+ * the connection is lost it is written again from its start. The spool
+ * bounds the memory taken by an outage and leaves paging it to the
+ * operating system. Each spool has a file of its own, deleted when the
+ * spool is closed, so spooled messages do not outlive the exporter.
+ * </p>
+ */
+public class MessageSpool {
+
+    // Offsets of the message length, sequence number and observation domain in the IPFIX message header
+    private static final int LENGTH_OFFSET = 2;
+    private static final int SEQUENCE_NUMBER_OFFSET = 8;
+    private static final int OBSERVATION_DOMAIN_OFFSET = 12;
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    // Start of the first message, bytes stored and bytes of the first message already written
+    private int head;
+    private volatile int size;
+    private int headWritten;
+
+    /**
+     * Creates an empty spool in a new file.
+     *
+     * @param directory directory of the spool file
+     * @param capacity spool size in bytes
+     * @throws IOException if the spool file cannot be created or mapped
+     */
+    public MessageSpool(Path directory, int capacity) throws IOException {
+        Files.createDirectories(directory);
+        this.file = Files.createTempFile(directory, "ipfix-", ".spool");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns whether no message is queued.
+     *
+     * @return true if the spool is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of bytes queued, including the part of the first
+     * message already written.
+     *
+     * @return queued bytes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Queues a whole message.
+     *
+     * @param message message, from its position to its limit
+     * @return false if the spool has no room for the message
+     */
+    public boolean append(ByteBuffer message) {
+        int length = message.remaining();
+        if (length > capacity - size) {
+            return false;
+        }
+        int tail = (head + size) % capacity;
+        int first = Math.min(length, capacity - tail);
+        ByteBuffer source = message.duplicate();
+        source.limit(source.position() + first);
+        ByteBuffer target = buffer.duplicate();
+        target.position(tail);
+        target.put(source);
+        source.limit(message.limit());
+        target.position(0);
+        target.put(source);
+        size += length;
+        return true;
+    }
+
+    /**
+     * Records that the first bytes of the first message have already been
+     * written, e.g. when a message was queued after a partial write.
+     *
+     * @param written number of bytes written
+     */
+    public void skip(int written) {
+        headWritten += written;
+    }
+
+    /**
+     * Writes as much of the queued messages as the channel accepts.
+     *
+     * @param channel channel to the collector
+     * @return number of bytes written
+     * @throws IOException if writing fails
+     */
+    public int writeTo(WritableByteChannel channel) throws IOException {
+        int total = 0;
+        while (size > 0) {
+            int length = messageLength();
+            while (headWritten < length) {
+                int from = (head + headWritten) % capacity;
+                ByteBuffer chunk = buffer.duplicate();
+                chunk.position(from);
+                chunk.limit(from + Math.min(length - headWritten, capacity - from));
+                int written = channel.write(chunk);
+                headWritten += written;
+                total += written;
+                if (chunk.hasRemaining()) {
+                    return total;
+                }
+            }
+            head = (head + length) % capacity;
+            size -= length;
+            headWritten = 0;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the sequence number of the first queued message of every
+     * observation domain with queued messages.
+     *
+     * @return sequence numbers by observation domain ID
+     */
+    public Map<Long, Long> firstSequenceNumbers() {
+        Map<Long, Long> sequenceNumbers = new HashMap<>();
+        int offset = head;
+        int remaining = size;
+        while (remaining > 0) {
+            int length = getShort(offset + LENGTH_OFFSET);
+            sequenceNumbers.putIfAbsent(getInt(offset + OBSERVATION_DOMAIN_OFFSET),
+                                        getInt(offset + SEQUENCE_NUMBER_OFFSET));
+            offset = (offset + length) % capacity;
+            remaining -= length;
+        }
+        return sequenceNumbers;
+    }
+
+    /**
+     * Marks the first message as not written at all, so that it is written
+     * again from its start over a new connection.
+     */
+    public void rewind() {
+        headWritten = 0;
+    }
+
+    /**
+     * Discards the queued messages and deletes the spool file. The mapping
+     * itself is released once the spool is garbage collected.
+     *
+     * @throws IOException if the spool file cannot be deleted
+     */
+    public void close() throws IOException {
+        size = 0;
+        headWritten = 0;
+        Files.deleteIfExists(file);
+    }
+
+    private int messageLength() {
+        return getShort(head + LENGTH_OFFSET);
+    }
+
+    // Unsigned big-endian fields, possibly wrapping around the end of the ring
+    private int getShort(int offset) {
+        int high = buffer.get(offset % capacity) & 0xff;
+        int low = buffer.get((offset + 1) % capacity) & 0xff;
+        return (high << 8) | low;
+    }
+
+    private long getInt(int offset) {
+        return ((long) getShort(offset) << 16) | getShort(offset + 2);
+    }
+}
@@ -23,6 +23,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.onlab.packet.Ip6Address;
 import org.onlab.packet.IpAddress;
+import org.onosproject.ipfix.ExporterIdentityCache.ExporterIdentity;
 import org.onosproject.ipfix.packet.DataRecord;
 import org.onosproject.ipfix.packet.TemplateRecord;
 import org.onosproject.net.ConnectPoint;
@@ -31,9 +32,6 @@ import org.onosproject.net.MastershipRole;
 import org.onosproject.net.device.DeviceEvent;
 import org.onosproject.net.device.DeviceListener;
 import org.onosproject.net.device.PortStatistics;
-import org.onosproject.openflow.controller.Dpid;
-
-import com.google.common.primitives.Longs;
 
 /**
  * Internal PortStats Listener.
@@ -68,13 +66,10 @@ public class PortStatsListener implements DeviceListener {
                     List<DataRecord> recordsInList = new ArrayList<DataRecord>();
                     List<DataRecord> recordsOutList = new ArrayList<DataRecord>();
 
-                    IpAddress exporterIpv4 =
-                            IpAddress.valueOf(device.annotations().toString().split("=")[2].split(":")[0]);
-                    long dpid = Dpid.dpid(device.id().uri()).value();
-                    byte[] byteExporterIpv6 = new byte[16];
-                    System.arraycopy(Longs.toByteArray(0), 0, byteExporterIpv6, 0, 8);
-                    System.arraycopy(Longs.toByteArray(dpid), 0, byteExporterIpv6, 8, 8);
-                    Ip6Address exporterIpv6 = Ip6Address.valueOf(byteExporterIpv6);
+                    ExporterIdentity exporter = ipfixManager.exporterIdentities.get(device);
+                    IpAddress exporterIpv4 = exporter.ipv4();
+                    Ip6Address exporterIpv6 = exporter.ipv6();
+                    long dpid = exporter.dpid();
 
                     for (PortStatistics stat : ipfixManager.deviceService.getPortDeltaStatistics(device.id())) {
 
@@ -108,10 +103,8 @@ public class PortStatsListener implements DeviceListener {
                     } else {
                         TemplateRecord trIn = DataRecordPortStatsIn.portStatsInTemplateRecord();
                         TemplateRecord trOut = DataRecordPortStatsOut.portStatsOutTemplateRecord();
-                        ipfixManager.ipfixSender.sendRecords(trIn, recordsInList, dpid,
-                                IpfixManager.collectorIp, IpfixManager.collectorPort);
-                        ipfixManager.ipfixSender.sendRecords(trOut, recordsOutList, dpid,
-                                IpfixManager.collectorIp, IpfixManager.collectorPort);
+                        ipfixManager.sendRecords(trIn, recordsInList, dpid);
+                        ipfixManager.sendRecords(trOut, recordsOutList, dpid);
                     }
                 }
                 break;
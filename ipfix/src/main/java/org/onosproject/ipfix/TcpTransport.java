@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.Supplier;
+
+import org.onosproject.ipfix.packet.MessageHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends IPFIX messages over TCP (RFC 7011 section 10.4).
+ * <p>
+ * Messages are written to a persistent non-blocking socket channel. What
+ * the collector does not accept immediately, and everything sent while
+ * the collector is unreachable, is queued in a bounded memory-mapped spool
+ * and written in order once the collector accepts it again. Lost
+ * connections are retried periodically, without ever blocking the sender,
+ * and every new connection starts with the templates in use before the
+ * spooled messages are replayed. Messages are only dropped when the spool
+ * is full.
+ * </p>
+ */
+public class TcpTransport implements IpfixTransport {
+
+    private static final int MAX_MESSAGE_LENGTH = 0xffff;
+    // Time between connection attempts and time allowed for each
+    private static final long RECONNECT_INTERVAL = 1000; //ms
+    private static final long CONNECT_TIMEOUT = 1000; //ms
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final InetSocketAddress collector;
+    private final MessageSpool spool;
+    private Supplier<List<ByteBuffer>> templates = Collections::emptyList;
+    // Template messages of the current session not completely written yet
+    private final Queue<ByteBuffer> pendingTemplates = new ArrayDeque<>();
+    // Channel of the current session, or of the connection attempt
+    private SocketChannel channel;
+    private boolean connected;
+    private long connectDeadline;
+    private long session;
+    private long nextConnect;
+
+    /**
+     * Creates a TCP transport. The collector is connected when the transport
+     * is first polled.
+     *
+     * @param collector collector socket address
+     * @param spoolDirectory directory of the file holding the messages not sent yet
+     * @param spoolSize maximum size of the messages not sent yet, in bytes
+     * @throws IOException if the spool file cannot be created
+     */
+    public TcpTransport(InetSocketAddress collector, Path spoolDirectory, int spoolSize) throws IOException {
+        this.collector = collector;
+        this.spool = new MessageSpool(spoolDirectory, spoolSize);
+    }
+
+    @Override
+    public String collector() {
+        return "tcp:" + collector;
+    }
+
+    @Override
+    public int maxMessageLength() {
+        return MAX_MESSAGE_LENGTH;
+    }
+
+    @Override
+    public boolean reliable() {
+        return true;
+    }
+
+    @Override
+    public long session() {
+        return connected ? session : session + 1;
+    }
+
+    @Override
+    public boolean inSession() {
+        return connected;
+    }
+
+    @Override
+    public void templates(Supplier<List<ByteBuffer>> templates) {
+        this.templates = templates;
+    }
+
+    @Override
+    public boolean send(ByteBuffer message) {
+        if (!connected || !pendingTemplates.isEmpty() || !spool.isEmpty()) {
+            boolean spooled = spool(message);
+            flushSpool();
+            return spooled;
+        }
+        int length = message.remaining();
+        try {
+            int written = channel.write(message);
+            if (written < length) {
+                message.position(message.position() - written);
+                if (!spool.append(message)) {
+                    // The collector got part of the message, only a new session can recover
+                    disconnect("spool full");
+                    return false;
+                }
+                spool.skip(written);
+            }
+            return true;
+        } catch (IOException e) {
+            message.position(message.limit() - length);
+            disconnect(e.getMessage());
+            return spool(message);
+        }
+    }
+
+    @Override
+    public void poll() {
+        if (channel == null && System.currentTimeMillis() >= nextConnect) {
+            connect();
+        } else if (channel != null && !connected) {
+            finishConnect();
+        }
+        flushSpool();
+    }
+
+    @Override
+    public long backlog() {
+        return spool.size();
+    }
+
+    @Override
+    public void close() {
+        poll();
+        if (!spool.isEmpty()) {
+            log.warn("IPFIX collector {} closed with {} bytes not sent", collector, spool.size());
+        }
+        disconnect(null);
+        try {
+            spool.close();
+        } catch (IOException e) {
+            log.warn("IPFIX spool close problem: " + e.getMessage());
+        }
+    }
+
+    private boolean spool(ByteBuffer message) {
+        if (spool.append(message)) {
+            return true;
+        }
+        log.debug("IPFIX message dropped, spool of collector {} full", collector);
+        return false;
+    }
+
+    // Writes the templates of the session, then the spooled messages, as far as the collector accepts them
+    private void flushSpool() {
+        if (!connected) {
+            return;
+        }
+        try {
+            while (!pendingTemplates.isEmpty()) {
+                ByteBuffer template = pendingTemplates.peek();
+                channel.write(template);
+                if (template.hasRemaining()) {
+                    return;
+                }
+                pendingTemplates.remove();
+            }
+            if (!spool.isEmpty()) {
+                spool.writeTo(channel);
+            }
+        } catch (IOException e) {
+            disconnect(e.getMessage());
+        }
+    }
+
+    // Starts a non-blocking connection attempt, completed by later polls
+    private void connect() {
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            connectDeadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+            if (channel.connect(collector)) {
+                sessionStarted();
+            }
+        } catch (IOException e) {
+            connectFailed(e.getMessage());
+        }
+    }
+
+    private void finishConnect() {
+        try {
+            if (channel.finishConnect()) {
+                sessionStarted();
+            } else if (System.currentTimeMillis() >= connectDeadline) {
+                connectFailed("connection timed out");
+            }
+        } catch (IOException e) {
+            connectFailed(e.getMessage());
+        }
+    }
+
+    // The templates are taken once the session has started, so that they are marked as sent on it.
+    // They go ahead of the replayed messages and are numbered as the first of their domain: a
+    // template message holds no data record, so the sequence numbers of the session never go back.
+    private void sessionStarted() {
+        connected = true;
+        session++;
+        Map<Long, Long> replayed = spool.firstSequenceNumbers();
+        for (ByteBuffer template : templates.get()) {
+            Long sequenceNumber = replayed.get(MessageHeader.observationDomainId(template));
+            if (sequenceNumber != null) {
+                MessageHeader.sequenceNumber(template, sequenceNumber);
+            }
+            pendingTemplates.add(template);
+        }
+        log.info("IPFIX collector {} connected", collector);
+    }
+
+    private void connectFailed(String reason) {
+        log.debug("IPFIX collector {} connection problem: {}", collector, reason);
+        closeQuietly(channel);
+        channel = null;
+        nextConnect = System.currentTimeMillis() + RECONNECT_INTERVAL;
+    }
+
+    private void disconnect(String reason) {
+        if (channel == null) {
+            return;
+        }
+        if (reason != null && connected) {
+            log.warn("IPFIX collector {} disconnected: {}", collector, reason);
+        }
+        closeQuietly(channel);
+        channel = null;
+        connected = false;
+        pendingTemplates.clear();
+        spool.rewind();
+        nextConnect = System.currentTimeMillis() + RECONNECT_INTERVAL;
+    }
+
+    private void closeQuietly(SocketChannel socket) {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug("IPFIX collector {} close problem: {}", collector, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends IPFIX messages over UDP, one message per datagram.
+ * <p>
+ * Messages go out over a single long-lived non-blocking datagram channel
+ * and are dropped when the socket buffer is full.
+ * </p>
+ */
+public class UdpTransport implements IpfixTransport {
+
+    // IP and UDP headers in front of every IPFIX message
+    private static final int UDP_HEADER = 8;
+    private static final int IPV4_HEADER = 20;
+    private static final int IPV6_HEADER = 40;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final InetSocketAddress collector;
+    private final int maxMessageLength;
+    private DatagramChannel channel;
+
+    /**
+     * Creates a UDP transport.
+     *
+     * @param collector collector socket address
+     * @param pathMtu path MTU towards the collector
+     */
+    public UdpTransport(InetSocketAddress collector, int pathMtu) {
+        this.collector = collector;
+        int ipHeader = collector.getAddress() instanceof Inet6Address ? IPV6_HEADER : IPV4_HEADER;
+        this.maxMessageLength = pathMtu - ipHeader - UDP_HEADER;
+        try {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            log.warn("IPFIX datagram channel problem: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String collector() {
+        return "udp:" + collector;
+    }
+
+    @Override
+    public int maxMessageLength() {
+        return maxMessageLength;
+    }
+
+    @Override
+    public boolean reliable() {
+        return false;
+    }
+
+    @Override
+    public long session() {
+        return 0;
+    }
+
+    @Override
+    public boolean inSession() {
+        return true;
+    }
+
+    @Override
+    public void templates(Supplier<List<ByteBuffer>> templates) {
+        // Templates are refreshed in the data messages
+    }
+
+    @Override
+    public boolean send(ByteBuffer message) {
+        if (channel == null) {
+            return false;
+        }
+        try {
+            if (channel.send(message, collector) == 0) {
+                log.debug("IPFIX packet dropped, socket buffer full");
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("IPFIX packet send IO exception: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void poll() {
+    }
+
+    @Override
+    public long backlog() {
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("IPFIX datagram channel close problem: " + e.getMessage());
+        }
+    }
+}
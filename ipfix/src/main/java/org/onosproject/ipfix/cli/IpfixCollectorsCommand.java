@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix.cli;
+
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.ipfix.IpfixService;
+
+/**
+ * Displays the IPFIX export counters of each collector.
+ */
+@Command(scope = "onos", name = "ipfix-collectors",
+        description = "Displays the IPFIX export counters of each collector")
+public class IpfixCollectorsCommand extends AbstractShellCommand {
+
+    private static final String FORMAT =
+            "collector=%s, messagesSent=%d, recordsSent=%d, recordsDropped=%d, queueDepth=%d, backlogBytes=%d";
+    private static final String FLOW_FORMAT = "flows: dropped=%d, queueDepth=%d";
+
+    @Override
+    protected void execute() {
+        IpfixService service = get(IpfixService.class);
+        service.collectorStatistics().forEach(
+                s -> print(FORMAT, s.collector(), s.messagesSent(), s.recordsSent(),
+                           s.recordsDropped(), s.queueDepth(), s.backlogBytes()));
+        print(FLOW_FORMAT, service.flowsDropped(), service.flowQueueDepth());
+    }
+}
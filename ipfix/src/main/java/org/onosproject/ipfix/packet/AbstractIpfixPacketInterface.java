@@ -15,6 +15,8 @@
 */
 package org.onosproject.ipfix.packet;
 
+import java.nio.ByteBuffer;
+
 /**
  * Abstract Interface for IPFIX entities.
  * Used for Records, Headers and Information Elements.
@@ -36,4 +38,16 @@ public interface AbstractIpfixPacketInterface {
      * @throws HeaderException header exception
      */
     public byte[] getBytes() throws HeaderException;
+
+    /**
+     * Writes the IPFIX entity at the current position of a buffer.
+     * Used for IPFIX packet serialization without intermediate byte arrays;
+     * entities on the export path override it to write their fields directly.
+     *
+     * @param buffer buffer to write to
+     * @throws HeaderException header exception
+     */
+    public default void write(ByteBuffer buffer) throws HeaderException {
+        buffer.put(getBytes());
+    }
 }
@@ -15,6 +15,8 @@
  */
 package org.onosproject.ipfix.packet;
 
+import java.nio.ByteBuffer;
+
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Shorts;
 
@@ -92,6 +94,12 @@ public class InformationElement implements AbstractIpfixPacketInterface {
         }
     }
 
+    @Override
+    public void write(ByteBuffer buffer) {
+        buffer.putShort((short) informationElementID);
+        buffer.putShort((short) fieldLength);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix.packet;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes IPFIX messages directly into a reusable buffer.
+ * <p>
+ * The message header, set headers and records are written sequentially
+ * into the same buffer; the message and set lengths are left blank and
+ * filled in when the message or set is finished. Encoding a message thus
+ * allocates nothing beyond what the records themselves need. An encoder is
+ * not thread safe and the buffer returned by {@link #finishMessage()} is
+ * only valid until the next message is started.
+ * </p>
+ */
+public class MessageEncoder {
+
+    private static final int IPFIX_VERSION = 10;
+    private static final int MAX_MESSAGE_LENGTH = 0xffff;
+
+    private final ByteBuffer buffer;
+    private int setStart = -1;
+
+    /**
+     * Creates an encoder for messages of up to the given length.
+     *
+     * @param capacity maximum message length in bytes
+     * @param direct true to encode into a direct buffer
+     */
+    public MessageEncoder(int capacity, boolean direct) {
+        int size = Math.min(capacity, MAX_MESSAGE_LENGTH);
+        this.buffer = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    /**
+     * Starts a new message, discarding anything encoded before.
+     *
+     * @param exportTime export time in milliseconds since epoch
+     * @param sequenceNumber sequence number of the message
+     * @param observationDomainId observation domain ID
+     * @return this encoder
+     */
+    public MessageEncoder startMessage(long exportTime, long sequenceNumber, long observationDomainId) {
+        buffer.clear();
+        setStart = -1;
+        buffer.putShort((short) IPFIX_VERSION);
+        buffer.putShort((short) 0);
+        buffer.putInt((int) (exportTime / 1000));
+        buffer.putInt((int) sequenceNumber);
+        buffer.putInt((int) observationDomainId);
+        return this;
+    }
+
+    /**
+     * Starts a new set in the current message, finishing the previous set.
+     *
+     * @param setId set ID; 2 for template sets, the template ID for data sets
+     * @return this encoder
+     */
+    public MessageEncoder startSet(int setId) {
+        finishSet();
+        setStart = buffer.position();
+        buffer.putShort((short) setId);
+        buffer.putShort((short) 0);
+        return this;
+    }
+
+    /**
+     * Writes a record to the current set. A record that does not fit in the
+     * message is left out of it entirely.
+     *
+     * @param record template or data record
+     * @return this encoder
+     * @throws HeaderException if the record cannot be encoded or does not fit
+     */
+    public MessageEncoder write(Record record) throws HeaderException {
+        int start = buffer.position();
+        try {
+            record.write(buffer);
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            throw new HeaderException("Record does not fit in the " + buffer.remaining()
+                    + " bytes left in the message");
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of bytes encoded so far in the current message.
+     *
+     * @return message length so far
+     */
+    public int length() {
+        return buffer.position();
+    }
+
+    /**
+     * Returns the number of bytes that can still be encoded in the current
+     * message.
+     *
+     * @return remaining capacity
+     */
+    public int remaining() {
+        return buffer.remaining();
+    }
+
+    /**
+     * Finishes the current message, filling in the set and message lengths.
+     *
+     * @return buffer holding the encoded message between its position and limit
+     */
+    public ByteBuffer finishMessage() {
+        finishSet();
+        buffer.putShort(2, (short) buffer.position());
+        buffer.flip();
+        return buffer;
+    }
+
+    private void finishSet() {
+        if (setStart >= 0) {
+            buffer.putShort(setStart + 2, (short) (buffer.position() - setStart));
+            setStart = -1;
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.onosproject.ipfix.packet;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -32,6 +33,9 @@ public class MessageHeader extends AbstractIpfixPacketEntity implements Abstract
     private static final Logger LOGGER = Logger.getLogger(SetHeader.class.getName());
     private static final int HEADER_LENGTH = 16;
     private static final int IPFIX_VERSION = 10;
+    // Offsets of the header fields rewritten in encoded messages
+    private static final int SEQUENCE_NUMBER_OFFSET = 8;
+    private static final int OBSERVATION_DOMAIN_OFFSET = 12;
 
     private int versionNumber;
     private int length;
@@ -110,6 +114,36 @@ public class MessageHeader extends AbstractIpfixPacketEntity implements Abstract
         setLength(length);
     }
 
+    /**
+     * Returns the sequence number of an encoded message.
+     *
+     * @param message encoded message, starting at its position
+     * @return sequence number
+     */
+    public static long sequenceNumber(ByteBuffer message) {
+        return message.getInt(message.position() + SEQUENCE_NUMBER_OFFSET) & 0xffffffffL;
+    }
+
+    /**
+     * Sets the sequence number of an encoded message.
+     *
+     * @param message encoded message, starting at its position
+     * @param sequenceNumber sequence number
+     */
+    public static void sequenceNumber(ByteBuffer message, long sequenceNumber) {
+        message.putInt(message.position() + SEQUENCE_NUMBER_OFFSET, (int) sequenceNumber);
+    }
+
+    /**
+     * Returns the observation domain ID of an encoded message.
+     *
+     * @param message encoded message, starting at its position
+     * @return observation domain ID
+     */
+    public static long observationDomainId(ByteBuffer message) {
+        return message.getInt(message.position() + OBSERVATION_DOMAIN_OFFSET) & 0xffffffffL;
+    }
+
     public static MessageHeader parse(byte[] data) throws HeaderException {
         try {
             if (data.length < HEADER_LENGTH) {
@@ -184,6 +218,27 @@ public class MessageHeader extends AbstractIpfixPacketEntity implements Abstract
         }
     }
 
+    /**
+     * Writes the message and its sets at the current position of a buffer,
+     * filling in the message length once the sets are written.
+     *
+     * @param buffer buffer to write to
+     * @throws HeaderException header exception
+     */
+    @Override
+    public void write(ByteBuffer buffer) throws HeaderException {
+        int start = buffer.position();
+        buffer.putShort((short) versionNumber);
+        buffer.putShort((short) 0);
+        buffer.putInt((int) (exportTime.getTime() / 1000));
+        buffer.putInt((int) sequenceNumber);
+        buffer.putInt((int) observationDomainID);
+        for (SetHeader sh : setHeaders) {
+            sh.write(buffer);
+        }
+        buffer.putShort(start + 2, (short) (buffer.position() - start));
+    }
+
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("[MessageHeader]: ");
@@ -15,6 +15,7 @@
  */
 package org.onosproject.ipfix.packet;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -198,6 +199,30 @@ public class SetHeader extends AbstractIpfixPacketEntity implements AbstractIpfi
         }
     }
 
+    /**
+     * Writes the set and its records at the current position of a buffer,
+     * filling in the set length once the records are written.
+     *
+     * @param buffer buffer to write to
+     * @throws HeaderException header exception
+     */
+    @Override
+    public void write(ByteBuffer buffer) throws HeaderException {
+        int start = buffer.position();
+        buffer.putShort((short) getSetID());
+        buffer.putShort((short) 0);
+        for (DataRecord record : dataRecords) {
+            record.write(buffer);
+        }
+        for (TemplateRecord record : templateRecords) {
+            record.write(buffer);
+        }
+        for (OptionTemplateRecord record : optionTemplateRecords) {
+            record.write(buffer);
+        }
+        buffer.putShort(start + 2, (short) (buffer.position() - start));
+    }
+
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("[SetHeader]: ");
@@ -15,6 +15,8 @@
  */
 package org.onosproject.ipfix.packet;
 
+import java.nio.ByteBuffer;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -118,6 +120,15 @@ public class TemplateRecord extends Record {
         }
     }
 
+    @Override
+    public void write(ByteBuffer buffer) {
+        buffer.putShort((short) getTemplateID());
+        buffer.putShort((short) getFieldCount());
+        for (InformationElement ie : informationElements) {
+            ie.write(buffer);
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
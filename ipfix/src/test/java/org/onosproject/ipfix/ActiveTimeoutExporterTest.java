@@ -0,0 +1,224 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.core.DefaultApplicationId;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleServiceAdapter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests of the interim and final flow records of the active timeout exporter.
+ */
+public class ActiveTimeoutExporterTest {
+
+    // Long enough for the scheduled walk never to run during a test
+    private static final int ACTIVE_TIMEOUT = 3600;
+    private static final DeviceId DID = DeviceId.deviceId("of:0000000000000001");
+
+    private final FlowRule rule = rule(1);
+
+    private final List<FlowEntry> flowEntries = new ArrayList<>();
+    private final List<String> records = new ArrayList<>();
+    private IpfixManager manager;
+    private ActiveTimeoutExporter exporter;
+
+    @Before
+    public void setUp() {
+        manager = new IpfixManager() {
+            @Override
+            protected boolean isExportedApp(short appId) {
+                return true;
+            }
+        };
+        manager.flowRuleService = new FlowRuleServiceAdapter() {
+            @Override
+            public Iterable<FlowEntry> getFlowEntries(DeviceId deviceId) {
+                return new ArrayList<>(flowEntries);
+            }
+        };
+        manager.flowRecordExporter = new FlowRecordExporter(manager, 1) {
+            @Override
+            public boolean submit(FlowEntry entry, long start, long end, long octets, long packets) {
+                synchronized (records) {
+                    records.add(octets + "/" + packets);
+                }
+                return true;
+            }
+        };
+        exporter = new ActiveTimeoutExporter(manager, ACTIVE_TIMEOUT, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    @After
+    public void tearDown() {
+        exporter.close();
+        manager.flowRecordExporter.close();
+    }
+
+    private static FlowRule rule(long inPort) {
+        return DefaultFlowRule.builder()
+                .forDevice(DID)
+                .withSelector(DefaultTrafficSelector.builder().matchInPort(PortNumber.portNumber(inPort)).build())
+                .withTreatment(DefaultTrafficTreatment.emptyTreatment())
+                .withPriority(10)
+                .fromApp(new DefaultApplicationId(1, "test"))
+                .makePermanent()
+                .build();
+    }
+
+    private FlowEntry entry(long life, long packets, long bytes) {
+        return new DefaultFlowEntry(rule, FlowEntry.FlowEntryState.ADDED, life, packets, bytes);
+    }
+
+    private void install(FlowEntry entry) {
+        flowEntries.clear();
+        flowEntries.add(entry);
+    }
+
+    // Walks every slice of the device, as happens over an active timeout
+    private void walk() {
+        for (int slice = 0; slice < ActiveTimeoutExporter.SLICES; slice++) {
+            exporter.walk(DID, slice);
+        }
+    }
+
+    /**
+     * Tests that interim records carry what the flow matched since the last one.
+     */
+    @Test
+    public void interimDeltas() {
+        install(entry(ACTIVE_TIMEOUT, 10, 1000));
+        walk();
+        install(entry(ACTIVE_TIMEOUT * 2, 15, 1500));
+        walk();
+        // Nothing matched since the last walk
+        walk();
+        exporter.exportRemoved(entry(ACTIVE_TIMEOUT * 2 + 10, 18, 1800), System.currentTimeMillis());
+
+        assertThat(records, contains("1000/10", "500/5", "300/3"));
+    }
+
+    /**
+     * Tests that flows installed for less than the active timeout are only
+     * exported when removed.
+     */
+    @Test
+    public void youngFlows() {
+        install(entry(ACTIVE_TIMEOUT - 1, 10, 1000));
+        walk();
+        assertThat(records, empty());
+
+        exporter.exportRemoved(entry(ACTIVE_TIMEOUT - 1, 10, 1000), System.currentTimeMillis());
+        assertThat(records, contains("1000/10"));
+    }
+
+    /**
+     * Tests that counters going backwards are exported whole rather than as
+     * negative deltas.
+     */
+    @Test
+    public void counterReset() {
+        install(entry(ACTIVE_TIMEOUT, 10, 1000));
+        walk();
+        install(entry(ACTIVE_TIMEOUT, 2, 200));
+        walk();
+        exporter.exportRemoved(entry(ACTIVE_TIMEOUT, 1, 100), System.currentTimeMillis());
+
+        assertThat(records, contains("1000/10", "200/2", "100/1"));
+    }
+
+    /**
+     * Tests that flows gone from a walk without a removal are forgotten.
+     */
+    @Test
+    public void forgottenFlows() {
+        install(entry(ACTIVE_TIMEOUT, 10, 1000));
+        walk();
+        flowEntries.clear();
+        walk();
+        exporter.exportRemoved(entry(ACTIVE_TIMEOUT, 12, 1200), System.currentTimeMillis());
+
+        assertThat(records, contains("1000/10", "1200/12"));
+    }
+
+    /**
+     * Tests that every flow is walked in exactly one slice, and that walking
+     * a slice leaves the flows of the other slices alone.
+     */
+    @Test
+    public void slicedByFlow() {
+        List<FlowRule> rules = new ArrayList<>();
+        for (int port = 1; port <= 50; port++) {
+            FlowRule flowRule = rule(port);
+            rules.add(flowRule);
+            flowEntries.add(new DefaultFlowEntry(flowRule, FlowEntry.FlowEntryState.ADDED,
+                                                 ACTIVE_TIMEOUT, port, port * 100));
+        }
+        for (int round = 1; round <= 2; round++) {
+            for (int slice = 0; slice < ActiveTimeoutExporter.SLICES; slice++) {
+                List<String> expected = new ArrayList<>();
+                for (int port = 1; port <= rules.size(); port++) {
+                    if (ActiveTimeoutExporter.slice(rules.get(port - 1).id().value()) == slice) {
+                        expected.add(port * 100 + "/" + port);
+                    }
+                }
+                records.clear();
+                exporter.walk(DID, slice);
+                assertThat(records, equalTo(expected));
+            }
+            // Doubles the counters, so that the next round exports the same deltas
+            for (int i = 0; i < flowEntries.size(); i++) {
+                FlowEntry entry = flowEntries.get(i);
+                flowEntries.set(i, new DefaultFlowEntry(entry, FlowEntry.FlowEntryState.ADDED,
+                                                        ACTIVE_TIMEOUT, entry.packets() * 2, entry.bytes() * 2));
+            }
+        }
+    }
+
+    /**
+     * Tests that submitted removals are exported on the exporter thread,
+     * before the exporter closes.
+     */
+    @Test
+    public void submittedRemovals() {
+        install(entry(ACTIVE_TIMEOUT, 10, 1000));
+        walk();
+        exporter.submitRemoved(entry(ACTIVE_TIMEOUT, 14, 1400));
+        exporter.close();
+        // Closed exporters export removed flows whole
+        exporter.submitRemoved(entry(ACTIVE_TIMEOUT, 14, 1400));
+
+        assertThat(records, contains("1000/10", "400/4", "1400/14"));
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the memory-mapped IPFIX message spool.
+ */
+public class MessageSpoolTest {
+
+    private static final int CAPACITY = 100;
+
+    private Path directory;
+    private MessageSpool spool;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ipfix-spool-test");
+        spool = new MessageSpool(directory, CAPACITY);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        spool.close();
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Returns a message of the given length, the length being written in
+     * its header as in IPFIX and every other byte holding the tag.
+     *
+     * @param length message length
+     * @param tag byte identifying the message
+     * @return message
+     */
+    static ByteBuffer message(int length, int tag) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) tag);
+        ByteBuffer message = ByteBuffer.wrap(bytes);
+        message.putShort(0, (short) 10);
+        message.putShort(2, (short) length);
+        return message;
+    }
+
+    private static byte[] bytes(ByteBuffer... messages) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (ByteBuffer message : messages) {
+            out.write(message.array(), 0, message.limit());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Tests that messages wrapping around the end of the ring are written
+     * back whole and in order.
+     */
+    @Test
+    public void wrapAround() throws IOException {
+        FakeChannel channel = new FakeChannel(Integer.MAX_VALUE);
+        assertTrue(spool.append(message(40, 1)));
+        assertTrue(spool.append(message(40, 2)));
+        assertEquals(80, spool.writeTo(channel));
+        assertTrue(spool.isEmpty());
+
+        // Starts at offset 80 and wraps around
+        assertTrue(spool.append(message(40, 3)));
+        assertTrue(spool.append(message(50, 4)));
+        assertEquals(90, spool.size());
+        spool.writeTo(channel);
+
+        assertArrayEquals(bytes(message(40, 1), message(40, 2), message(40, 3), message(50, 4)),
+                          channel.bytes());
+        assertTrue(spool.isEmpty());
+    }
+
+    /**
+     * Tests that messages are only accepted while they fit.
+     */
+    @Test
+    public void full() {
+        assertTrue(spool.append(message(60, 1)));
+        assertFalse(spool.append(message(60, 2)));
+        assertTrue(spool.append(message(40, 3)));
+        assertEquals(CAPACITY, spool.size());
+        assertFalse(spool.append(message(16, 4)));
+    }
+
+    /**
+     * Tests that writes cut short by the channel resume where they stopped.
+     */
+    @Test
+    public void partialWrites() throws IOException {
+        FakeChannel channel = new FakeChannel(25);
+        spool.append(message(40, 1));
+        spool.append(message(40, 2));
+
+        assertEquals(25, spool.writeTo(channel));
+        assertFalse(spool.isEmpty());
+        channel.allow(30);
+        assertEquals(30, spool.writeTo(channel));
+        channel.allow(Integer.MAX_VALUE);
+        assertEquals(25, spool.writeTo(channel));
+
+        assertArrayEquals(bytes(message(40, 1), message(40, 2)), channel.bytes());
+        assertTrue(spool.isEmpty());
+    }
+
+    /**
+     * Tests that a message queued after a partial write is completed
+     * without writing its start again.
+     */
+    @Test
+    public void skip() throws IOException {
+        FakeChannel channel = new FakeChannel(Integer.MAX_VALUE);
+        ByteBuffer message = message(40, 1);
+        spool.append(message);
+        spool.skip(15);
+
+        assertEquals(25, spool.writeTo(channel));
+        assertArrayEquals(Arrays.copyOfRange(bytes(message), 15, 40), channel.bytes());
+    }
+
+    /**
+     * Tests that after a rewind the message written in part is replayed
+     * from its start, followed by the rest.
+     */
+    @Test
+    public void rewindReplay() throws IOException {
+        FakeChannel lost = new FakeChannel(25);
+        spool.append(message(40, 1));
+        spool.append(message(40, 2));
+        spool.writeTo(lost);
+
+        spool.rewind();
+        FakeChannel channel = new FakeChannel(Integer.MAX_VALUE);
+        assertEquals(80, spool.writeTo(channel));
+        assertArrayEquals(bytes(message(40, 1), message(40, 2)), channel.bytes());
+    }
+
+    /**
+     * Tests that the first queued message of every observation domain is
+     * found, also when its header wraps around the end of the ring.
+     */
+    @Test
+    public void firstSequenceNumbers() throws IOException {
+        spool.append(message(90, 1));
+        spool.writeTo(new FakeChannel(Integer.MAX_VALUE));
+        // Starts at offset 90, so that its header wraps around
+        spool.append(sequenced(message(30, 2), 7, 5));
+        spool.append(sequenced(message(20, 3), 8, 1));
+        spool.append(sequenced(message(20, 4), 7, 9));
+
+        Map<Long, Long> first = spool.firstSequenceNumbers();
+        assertEquals(2, first.size());
+        assertEquals(Long.valueOf(5), first.get(7L));
+        assertEquals(Long.valueOf(1), first.get(8L));
+    }
+
+    /**
+     * Sets the observation domain and sequence number of a message.
+     *
+     * @param message message
+     * @param oid observation domain ID
+     * @param sequenceNumber sequence number
+     * @return the message
+     */
+    static ByteBuffer sequenced(ByteBuffer message, long oid, long sequenceNumber) {
+        message.putInt(8, (int) sequenceNumber);
+        message.putInt(12, (int) oid);
+        return message;
+    }
+
+    /**
+     * Channel accepting a limited number of bytes.
+     */
+    private static final class FakeChannel implements WritableByteChannel {
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private int allowed;
+
+        private FakeChannel(int allowed) {
+            this.allowed = allowed;
+        }
+
+        private void allow(int bytes) {
+            allowed = bytes;
+        }
+
+        private byte[] bytes() {
+            return written.toByteArray();
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            int length = Math.min(allowed, source.remaining());
+            byte[] bytes = new byte[length];
+            source.get(bytes);
+            written.write(bytes, 0, length);
+            allowed -= length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
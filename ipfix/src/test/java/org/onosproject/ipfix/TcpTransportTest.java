@@ -0,0 +1,242 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.ipfix.MessageSpoolTest.message;
+import static org.onosproject.ipfix.MessageSpoolTest.sequenced;
+
+/**
+ * Tests of the IPFIX over TCP transport against a loopback collector.
+ */
+public class TcpTransportTest {
+
+    private static final int SPOOL_SIZE = 1 << 16;
+    private static final int TEMPLATE = 100;
+    private static final long OID = 3;
+    // Data records of the data messages of the replay tests
+    private static final int RECORDS = 2;
+    private static final int TIMEOUT = 5000; //ms
+
+    private Path directory;
+    private int port;
+    private ServerSocket collector;
+    private Socket session;
+    private TcpTransport transport;
+    private int templatesTaken;
+    // Data records sent so far, the sequence number of the next message as numbered by the sender
+    private long sequenceNumber;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ipfix-tcp-test");
+        try (ServerSocket probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = probe.getLocalPort();
+        }
+        transport = new TcpTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                                     directory, SPOOL_SIZE);
+        transport.templates(() -> {
+            templatesTaken++;
+            return Collections.singletonList(sequenced(message(20, TEMPLATE), OID, sequenceNumber));
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        transport.close();
+        if (session != null) {
+            session.close();
+        }
+        if (collector != null) {
+            collector.close();
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private void listen() throws IOException {
+        collector = new ServerSocket();
+        collector.setReuseAddress(true);
+        collector.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        collector.setSoTimeout(TIMEOUT);
+    }
+
+    // Polls the transport until it has connected the given session and accepts it
+    private void connect(long expectedSession) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (transport.session() != expectedSession || templatesTaken < expectedSession) {
+            assertTrue("not connected", System.currentTimeMillis() < deadline);
+            transport.poll();
+            Thread.sleep(10);
+        }
+        session = collector.accept();
+        session.setSoTimeout(TIMEOUT);
+    }
+
+    // Reads messages until the given number was received
+    private List<ByteBuffer> receiveMessages(int count) throws IOException {
+        List<ByteBuffer> messages = new ArrayList<>();
+        DataInputStream in = new DataInputStream(session.getInputStream());
+        while (messages.size() < count) {
+            transport.poll();
+            short version = in.readShort();
+            int length = in.readUnsignedShort();
+            ByteBuffer message = ByteBuffer.allocate(length);
+            message.putShort(0, version).putShort(2, (short) length);
+            in.readFully(message.array(), 4, length - 4);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    // Reads messages until the given number was received, returning their tags
+    private List<Integer> receive(int count) throws IOException {
+        List<Integer> tags = new ArrayList<>();
+        for (ByteBuffer message : receiveMessages(count)) {
+            tags.add((int) message.get(message.limit() - 1));
+        }
+        return tags;
+    }
+
+    // Sends a data message numbered as the sender does
+    private boolean sendData(int length, int tag) {
+        ByteBuffer message = sequenced(message(length, tag), OID, sequenceNumber);
+        sequenceNumber += RECORDS;
+        return transport.send(message);
+    }
+
+    /**
+     * Tests that messages sent while the collector is unreachable are
+     * spooled and replayed after the templates once it is reachable.
+     */
+    @Test
+    public void reconnectReplaysAfterTemplates() throws Exception {
+        transport.poll();
+        assertEquals(1, transport.session());
+        assertTrue(transport.send(message(30, 1)));
+        assertTrue(transport.send(message(40, 2)));
+        assertEquals(70, transport.backlog());
+
+        listen();
+        connect(1);
+        assertEquals(Integer.valueOf(TEMPLATE), receive(1).get(0));
+        assertEquals(Integer.valueOf(1), receive(1).get(0));
+        assertEquals(Integer.valueOf(2), receive(1).get(0));
+        assertEquals(0, transport.backlog());
+
+        assertTrue(transport.send(message(30, 3)));
+        assertEquals(Integer.valueOf(3), receive(1).get(0));
+    }
+
+    /**
+     * Tests that a lost connection starts a new session with the templates.
+     */
+    @Test
+    public void newSessionStartsWithTemplates() throws Exception {
+        listen();
+        connect(1);
+        assertEquals(Integer.valueOf(TEMPLATE), receive(1).get(0));
+
+        session.close();
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        int tag = 1;
+        while (transport.session() == 1) {
+            assertTrue("disconnect not detected", System.currentTimeMillis() < deadline);
+            transport.send(message(30, tag++ % TEMPLATE));
+            Thread.sleep(10);
+        }
+        assertTrue(transport.backlog() > 0);
+
+        connect(2);
+        assertEquals(Integer.valueOf(TEMPLATE), receive(1).get(0));
+    }
+
+    /**
+     * Tests that after a reconnect the templates are sent before the
+     * spooled data messages, numbered so that the sequence numbers of the
+     * new session do not go back.
+     */
+    @Test
+    public void reconnectSendsTemplatesBeforeSpool() throws Exception {
+        listen();
+        connect(1);
+        assertEquals(Integer.valueOf(TEMPLATE), receive(1).get(0));
+
+        session.close();
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (transport.session() == 1) {
+            assertTrue("disconnect not detected", System.currentTimeMillis() < deadline);
+            sendData(30, 1);
+            Thread.sleep(10);
+        }
+        assertTrue(sendData(30, 2));
+        int spooled = (int) transport.backlog() / 30;
+        assertTrue(spooled >= 2);
+
+        connect(2);
+        List<ByteBuffer> messages = receiveMessages(1 + spooled);
+        ByteBuffer template = messages.get(0);
+        assertEquals(TEMPLATE, template.get(template.limit() - 1));
+        // A template message holds no data record, so it shares the number of the first data message
+        assertEquals(sequenceNumber(messages.get(1)), sequenceNumber(template));
+        for (int i = 2; i < messages.size(); i++) {
+            assertEquals(sequenceNumber(messages.get(i - 1)) + RECORDS, sequenceNumber(messages.get(i)));
+        }
+        ByteBuffer last = messages.get(messages.size() - 1);
+        assertEquals(2, last.get(last.limit() - 1));
+        assertEquals(0, transport.backlog());
+    }
+
+    private static long sequenceNumber(ByteBuffer message) {
+        return message.getInt(8) & 0xffffffffL;
+    }
+
+    /**
+     * Tests that a collector not reading does not block the sender, and
+     * that messages are dropped once the spool is full.
+     */
+    @Test
+    public void neverBlocks() throws Exception {
+        listen();
+        connect(1);
+        long start = System.currentTimeMillis();
+        boolean dropped = false;
+        for (int i = 0; i < 1000 && !dropped; i++) {
+            dropped = !transport.send(message(60000, 1));
+        }
+        assertTrue("nothing dropped", dropped);
+        assertTrue("sender blocked", System.currentTimeMillis() - start < TIMEOUT);
+        assertFalse(transport.backlog() == 0);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ipfix.packet;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the IPFIX message encoder.
+ */
+public class MessageEncoderTest {
+
+    private static final int HEADER_LENGTH = 16;
+    private static final int SET_HEADER_LENGTH = 4;
+
+    private static Record record(int size) {
+        return new Record() {
+            @Override
+            public byte[] getBytes() {
+                return new byte[size];
+            }
+        };
+    }
+
+    /**
+     * Tests that the message and set lengths cover the records written.
+     */
+    @Test
+    public void lengths() throws HeaderException {
+        ByteBuffer message = new MessageEncoder(100, false)
+                .startMessage(0, 0, 1)
+                .startSet(256)
+                .write(record(10))
+                .write(record(20))
+                .finishMessage();
+
+        assertEquals(HEADER_LENGTH + SET_HEADER_LENGTH + 30, message.remaining());
+        assertEquals(HEADER_LENGTH + SET_HEADER_LENGTH + 30, message.getShort(2));
+        assertEquals(SET_HEADER_LENGTH + 30, message.getShort(HEADER_LENGTH + 2));
+    }
+
+    /**
+     * Tests that a record exceeding the message capacity is rejected whole.
+     */
+    @Test
+    public void oversizedRecord() throws HeaderException {
+        MessageEncoder encoder = new MessageEncoder(HEADER_LENGTH + SET_HEADER_LENGTH + 20, false);
+        encoder.startMessage(0, 0, 1).startSet(256).write(record(10));
+        try {
+            encoder.write(record(20));
+            fail("Oversized record encoded");
+        } catch (HeaderException e) {
+            assertEquals(HEADER_LENGTH + SET_HEADER_LENGTH + 10, encoder.length());
+        }
+        assertEquals(HEADER_LENGTH + SET_HEADER_LENGTH + 10, encoder.finishMessage().remaining());
+    }
+}
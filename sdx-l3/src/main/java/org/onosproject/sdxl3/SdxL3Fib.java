@@ -148,7 +148,7 @@ public class SdxL3Fib {
      * @param nextHopMacAddress MAC address of the next hop
      * @return the generated intent, or null if no intent should be submitted
      */
-    private MultiPointToSinglePointIntent generateRouteIntent(
+    MultiPointToSinglePointIntent generateRouteIntent(
             IpPrefix prefix,
             IpAddress nextHopIpAddress,
             MacAddress nextHopMacAddress) {
@@ -137,7 +137,7 @@ public class TopologyResource extends BaseResource {
 
     // Scan all links and counts number of them between the same devices
     // using a normalized link key.
-    private Map<String, AggLink> aggregateLinks() {
+    Map<String, AggLink> aggregateLinks() {
         Map<String, AggLink> aggLinks = new HashMap<>();
         LinkService linkService = get(LinkService.class);
         for (Link link : linkService.getLinks()) {